@@ -21,7 +21,7 @@ import java.util.Random;
 public class BlockBreakDropListener implements Listener {
     private final BlockRandomizerReloaded plugin;
     private List<EntityType> cachedSpawnableMobs;
-    private long lastMobCacheEpoch = -1;
+    private Settings mobCacheSettings; // snapshot the mob list was built for
 
     public BlockBreakDropListener(BlockRandomizerReloaded plugin) {
         this.plugin = plugin;
@@ -29,7 +29,8 @@ public class BlockBreakDropListener implements Listener {
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
-        if (!plugin.isWorldEnabled(event.getBlock().getWorld())) return;
+        World world = event.getBlock().getWorld();
+        if (!plugin.profile(world).drops) return;
         Player p = event.getPlayer();
         if (p == null) return;
         GameMode gm = p.getGameMode();
@@ -37,7 +38,7 @@ public class BlockBreakDropListener implements Listener {
 
         Material source = event.getBlock().getType();
         // Build a random drop stack (can be tools/armor/potions/valuables)
-        ItemStack stack = plugin.getRandomDropForSource(source);
+        ItemStack stack = plugin.getRandomDropForSource(world, source);
         if (stack == null || stack.getType() == Material.AIR) return;
 
         // Replace default drops with the generated stack
@@ -52,29 +53,17 @@ public class BlockBreakDropListener implements Listener {
 
     private void maybeSpawnRandomMob(BlockBreakEvent event) {
         World world = event.getBlock().getWorld();
-        if (!plugin.isWorldEnabled(world)) return;
+        if (!plugin.profile(world).mobs) return;
 
-        double chance = 0.05;
-        boolean enabled = true;
-        boolean excludeBosses = false; // allow bosses by default
-        try {
-            if (plugin.getConfig().getConfigurationSection("trolling") != null) {
-                if (plugin.getConfig().getConfigurationSection("trolling").getConfigurationSection("block-break-mob") != null) {
-                    org.bukkit.configuration.ConfigurationSection sec = plugin.getConfig().getConfigurationSection("trolling").getConfigurationSection("block-break-mob");
-                    enabled = sec.getBoolean("enabled", true);
-                    chance = sec.getDouble("chance", 0.05);
-                    excludeBosses = sec.getBoolean("exclude-bosses", false);
-                }
-            }
-        } catch (Exception ignored) {}
-        if (!enabled) return;
+        Settings s = plugin.settings();
 
         Random r = new Random();
-        if (r.nextDouble() >= chance) return;
+        if (r.nextDouble() >= s.blockBreakMobChance) return;
 
-        // Build cache per palette epoch (heuristic: reuse plugin's paletteEpoch via method? not exposed, so rebuild on empty)
-        if (cachedSpawnableMobs == null || cachedSpawnableMobs.isEmpty()) {
-            cachedSpawnableMobs = buildSpawnableMobList(excludeBosses);
+        // Rebuilt when a reload publishes new settings (exclude-bosses may have changed)
+        if (cachedSpawnableMobs == null || mobCacheSettings != s) {
+            cachedSpawnableMobs = buildSpawnableMobList(s.blockBreakMobExcludeBosses);
+            mobCacheSettings = s;
         }
         if (cachedSpawnableMobs.isEmpty()) return;
 
@@ -0,0 +1,20 @@
+package dev.konrad.brr;
+
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+// Default BlockData per Material, created once on first use and shared by every write.
+// setType(Material) builds a fresh default state on each call; setBlockData with a cached
+// instance skips that. Main thread only.
+final class BlockDataCache {
+    private final BlockData[] byOrdinal = new BlockData[Material.values().length];
+
+    BlockData get(Material m) {
+        BlockData data = byOrdinal[m.ordinal()];
+        if (data == null) {
+            data = m.createBlockData();
+            byOrdinal[m.ordinal()] = data;
+        }
+        return data;
+    }
+}
@@ -2,6 +2,7 @@ package dev.konrad.brr;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Material;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -9,57 +10,56 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitTask;
-import org.bukkit.block.data.Waterlogged;
 import org.bukkit.Sound;
 import org.bukkit.entity.EntityType;
 import org.bukkit.WorldBorder;
 import org.bukkit.NamespacedKey;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.enchantments.Enchantment;
-import org.bukkit.inventory.meta.PotionMeta;
-import org.bukkit.potion.PotionData;
-import org.bukkit.potion.PotionType;
 import org.bukkit.inventory.meta.EnchantmentStorageMeta;
 
-import java.util.ArrayDeque;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.EnumMap;
+import java.util.Arrays;
 import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
-import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class BlockRandomizerReloaded extends JavaPlugin {
 
-    private final Set<String> enabledWorldNames = new HashSet<>();
-    private final Set<Material> exposureNeighbors = EnumSet.noneOf(Material.class);
-    private final Set<Material> replacementWhitelist = EnumSet.noneOf(Material.class);
-    private List<Material> replacementList = new ArrayList<>();
-    private final Set<Material> protectedSourceBlocks = EnumSet.noneOf(Material.class);
-
-    private boolean triggerOnChunkLoad = true;
-    private int periodicSeconds = 0;
-    private int minY = 60;
-    private int maxY = 320;
-    private double tickBudgetMs = 2.0;
-    private boolean logChangedBlocks = false;
-    private int underDepth = 3; // number of blocks below the surface to also replace
-    private int underMinY = 57; // minimum Y for under-replacements
+    // Parsed config and the tables compiled from it; replaced wholesale on reload, never edited in place
+    private volatile Settings settings;
+    private int reloadSeq = 0; // only the newest of overlapping /brr reload runs is applied
+    private final TickBudget tickBudget = new TickBudget();
 
     private final Random rng = new Random();
 
-    private final Map<String, BukkitTask> activeChunkTasks = new HashMap<>();
+    private final ChunkWorkScheduler chunkWork = new ChunkWorkScheduler(this);
+    private final LongObjectMap<ChunkWork> pendingPlans = new LongObjectMap<>(); // snapshot taken, plan not back yet
+    private ChunkPipeline pipeline; // every chunk pass runs all of its stages from one snapshot
+    private final WorldIndex worldIndex = new WorldIndex();
+    private ChunkLedger ledger;
+    private NamespacedKey paletteEpochKey;
+    // Unfinished work of unloaded chunks (unload-policy: backlog), resumed on the next load
+    private final LongObjectMap<ChunkWork> parkedWork = new LongObjectMap<>();
+    private static final int MAX_PARKED = 4096;
+    // What was written into each loaded chunk, for incremental rotations
+    private final LongObjectMap<ChangeLog> changeLogs = new LongObjectMap<>();
+    private long[] seenScratch = new long[0];
+    // Edge columns that could not be judged without their neighbor chunks, by chunk key
+    private final LongObjectMap<DeferredEdges> deferredEdges = new LongObjectMap<>();
+    // Snapshots taken this tick; a load burst asks for the same neighbors over and over
+    private final LongObjectMap<ChunkSnapshot> snapshotCache = new LongObjectMap<>();
+    private int snapshotCacheTick = -1;
     private BukkitTask periodicTask;
     private BukkitTask paletteTask;
     private BukkitTask soundsTask;
@@ -69,102 +69,70 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     private BukkitTask ghostItemTask;
     private BukkitTask hungerTask;
     private BukkitTask requeueTask;
-    private final ArrayDeque<Chunk> requeueQueue = new ArrayDeque<>();
-    private int requeuePerTick = 5;
-    private int maxActiveChunkTasks = 8;
-
-    // Prank config caches
-    private List<Sound> prankSounds = new ArrayList<>();
-    private List<String> fakeMessages = new ArrayList<>();
-    private int soundCheckPeriodTicks = 100; // 5s
-    private double soundPerCheckChance = 0.03; // 3% per player per check
-    private boolean soundsEnabled = true;
-    private boolean fakeMessagesEnabled = true;
-    private int fakeMsgMinMinutes = 2;
-    private int fakeMsgMaxMinutes = 20;
-    private boolean randomizeWeatherOnRotate = true;
-    private boolean teleportEnabled = true;
-    private int tpMinMinutes = 1;
-    private int tpMaxMinutes = 20;
-    private int tpMinDistance = 1;
-    private int tpMaxDistance = 10;
-    private int tpMinCooldownSeconds = 30;
-    private final Map<java.util.UUID, Long> lastTeleportAt = new HashMap<>();
+    private ProximityQueue requeueQueue;
+    private final ChunkSweep periodicSweep = new ChunkSweep(worldIndex);
+
+    // Prank cooldowns
+    private final LongLongMap lastTeleportAt = new LongLongMap(); // by WorldIndex.playerKey
 
     // Hand swap
-    private boolean handSwapEnabled = true;
-    private int handSwapMinMinutes = 2;
-    private int handSwapMaxMinutes = 15;
-    private int handSwapCooldownSeconds = 30;
-    private final Map<java.util.UUID, Long> lastHandSwapAt = new HashMap<>();
+    private final LongLongMap lastHandSwapAt = new LongLongMap();
 
     // Ghost items
-    private boolean ghostItemsEnabled = true;
-    private int ghostMinMinutes = 2;
-    private int ghostMaxMinutes = 10;
-    private int ghostPerEventMin = 1;
-    private int ghostPerEventMax = 2;
-    private int ghostDurationSeconds = 30;
     private NamespacedKey ghostKey;
 
     // Hunger jumps
-    private boolean hungerEnabled = true;
-    private int hungerMinMinutes = 2;
-    private int hungerMaxMinutes = 12;
-    private int hungerMinDelta = -6;
-    private int hungerMaxDelta = 6;
-    private int hungerCooldownSeconds = 20;
-    private final Map<java.util.UUID, Long> lastHungerAt = new HashMap<>();
+    private final LongLongMap lastHungerAt = new LongLongMap();
 
     // Stats
     private long statBlocksChanged = 0L;
+    private final BlockDataCache blockData = new BlockDataCache();
     private long statChunksQueued = 0L;
     private long statTasksCompleted = 0L;
-    private int paletteEpoch = 0;
-
-    // Drops config
-    private boolean dropAllowNonBlockItems = true;
-    private boolean dropIncludeValuables = true;
-    private double dropRegularItemChance = 0.05;   // 5% regular non-block items (tools/armor/potions/food)
-    private double dropValuableItemChance = 0.01;  // 1% curated valuables (elytra, totem, etc.)
-    private int dropAmountMin = 1;
-    private int dropAmountMax = 1;
-    private boolean dropEnchantEnabled = true;
-    private double dropEnchantChance = 0.01; // 1% enchant chance
-    private int dropEnchantCountMin = 1;
-    private int dropEnchantCountMax = 3;
-    private int dropEnchantLevelMin = 1;
-    private int dropEnchantLevelMax = 5;
-    private boolean dropEnchantUnsafeOnAnyItem = true;
+    // Per-world toggles, palettes and rotation schedules, by WorldIndex; see profile(World)
+    private WorldProfile[] profiles = new WorldProfile[4];
+    private static final long MIN_ROTATION_GAP_TICKS = 200L; // between rotations of different worlds
+    private long rotationOriginTick;
+    private long lastRotationTick = -MIN_ROTATION_GAP_TICKS;
+    private MaterialCapabilities capabilities; // probed once per server version, see MaterialCapabilities
+    private DropTemplates dropTemplates;
 
     @Override
     public void onEnable() {
         saveDefaultConfig();
-        reloadConfigAndRebuildWhitelist();
+        capabilities = MaterialCapabilities.load(getDataFolder(), getDescription().getVersion(), getLogger());
+        ledger = new ChunkLedger(this, worldIndex);
+        requeueQueue = new ProximityQueue(worldIndex);
+        paletteEpochKey = new NamespacedKey(this, "palette-epoch");
+        ghostKey = new NamespacedKey(this, "ghost-item");
+        dropTemplates = new DropTemplates();
+        pipeline = new ChunkPipeline(new SurfaceTransform(this), new NetherWaterTransform(this));
+        // First snapshot: starts the periodic timer, palette rotation and mischief schedulers
+        rotationOriginTick = Bukkit.getCurrentTick();
+        reloadConfig();
+        applySettings(new Settings(getConfig(), capabilities, getLogger()));
+        for (World w : Bukkit.getWorlds()) profile(w); // worlds loaded later get theirs on first use
 
         // Listener
         Bukkit.getPluginManager().registerEvents(new ChunkRandomizeListener(this), this);
         Bukkit.getPluginManager().registerEvents(new BlockBreakDropListener(this), this);
         Bukkit.getPluginManager().registerEvents(new PotionChaosListener(this), this);
         Bukkit.getPluginManager().registerEvents(new GhostItemListener(this), this);
-        Bukkit.getPluginManager().registerEvents(new NetherLavaWaterListener(this), this);
-
-        ghostKey = new NamespacedKey(this, "ghost-item");
-
-        // Optional periodic timer
-        scheduleOrCancelPeriodic();
-        // Mischief schedulers (sounds, fake messages)
-        scheduleOrCancelPranks();
-        getLogger().info("BlockRandomizerReloaded enabled. Worlds=" + enabledWorldNames + ", whitelist size=" + replacementWhitelist.size());
+        Bukkit.getPluginManager().registerEvents(tickBudget, this);
+        getLogger().info("BlockRandomizerReloaded enabled. Worlds=" + settings.enabledWorldNames + ", whitelist size=" + settings.replacementWhitelist.size());
     }
 
     @Override
     public void onDisable() {
+        // Chunks are saved after plugins are disabled; get the ledger into them first
+        if (ledger != null) ledger.flushAll();
         // Cancel all tasks
-        for (BukkitTask task : activeChunkTasks.values()) {
-            task.cancel();
-        }
-        activeChunkTasks.clear();
+        chunkWork.clear();
+        pendingPlans.clear();
+        parkedWork.clear();
+        changeLogs.clear();
+        deferredEdges.clear();
+        snapshotCache.clear();
         if (periodicTask != null) {
             periodicTask.cancel();
             periodicTask = null;
@@ -200,69 +168,60 @@ public class BlockRandomizerReloaded extends JavaPlugin {
         if (requeueTask != null) {
             requeueTask.cancel();
             requeueTask = null;
-            requeueQueue.clear();
+            if (requeueQueue != null) requeueQueue.invalidate();
         }
     }
 
-    public void reloadConfigAndRebuildWhitelist() {
-        reloadConfig();
-        FileConfiguration cfg = getConfig();
-
-        enabledWorldNames.clear();
-        enabledWorldNames.addAll(cfg.getStringList("enabled-worlds"));
-
-        minY = cfg.getInt("min-y", 60);
-        maxY = cfg.getInt("max-y", 320);
-
-        ConfigurationSection trig = cfg.getConfigurationSection("trigger");
-        if (trig != null) {
-            triggerOnChunkLoad = trig.getBoolean("on-chunk-load", true);
-            periodicSeconds = trig.getInt("periodic-seconds", 0);
-        } else {
-            triggerOnChunkLoad = true;
-            periodicSeconds = 0;
-        }
-
-        exposureNeighbors.clear();
-        for (String s : cfg.getStringList("exposure-neighbors")) {
-            Material m = safeMaterial(s);
-            if (m != null) exposureNeighbors.add(m);
+    // Loads config.yml (with the jar's defaults) into a fresh snapshot; no server state
+    // involved, so it runs on an async thread for /brr reload
+    private Settings readSettings() {
+        YamlConfiguration cfg = YamlConfiguration.loadConfiguration(new File(getDataFolder(), "config.yml"));
+        InputStream defaults = getResource("config.yml");
+        if (defaults != null) {
+            cfg.setDefaults(YamlConfiguration.loadConfiguration(new InputStreamReader(defaults, StandardCharsets.UTF_8)));
         }
-        if (exposureNeighbors.isEmpty()) {
-            Collections.addAll(exposureNeighbors, Material.AIR, Material.WATER, Material.LAVA);
-        }
-
-        tickBudgetMs = cfg.getDouble("tick-budget-ms", 2.0);
-        logChangedBlocks = cfg.getConfigurationSection("log") != null && cfg.getConfigurationSection("log").getBoolean("changed-blocks", false);
-
-        ConfigurationSection underSec = cfg.getConfigurationSection("under");
-        if (underSec != null) {
-            underDepth = Math.max(0, underSec.getInt("depth", 3));
-            underMinY = underSec.getInt("min-y", 57);
-        } else {
-            underDepth = 3;
-            underMinY = 57;
-        }
-
-        // Read prank-related configuration
-        readPrankConfig(cfg);
-        // Read drops-related configuration
-        readDropsConfig(cfg);
-
-        // Protected source blocks (never modify original if matches)
-        protectedSourceBlocks.clear();
-        buildProtectedSourceBlocks();
-
-        // Build whitelist by exclusions
-        replacementWhitelist.clear();
-        buildWhitelistFromConfig();
-        replacementList = new ArrayList<>(replacementWhitelist);
-        buildDropCandidates();
-        buildItemPools();
+        return new Settings(cfg, capabilities, getLogger());
+    }
 
-        // Reset stats? keep across reloads
-        scheduleOrCancelPeriodic();
-        scheduleOrCancelPranks();
+    // /brr reload: parse and compile off the main thread, then publish on it
+    public void reloadSettingsAsync(CommandSender sender) {
+        int seq = ++reloadSeq;
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            Settings next;
+            try {
+                next = readSettings();
+            } catch (Throwable t) {
+                getLogger().warning("BRR: config reload failed: " + t);
+                if (isEnabled()) Bukkit.getScheduler().runTask(this, () -> sender.sendMessage("BRR: config reload failed: " + t.getMessage()));
+                return;
+            }
+            if (!isEnabled()) return;
+            Bukkit.getScheduler().runTask(this, () -> {
+                if (seq != reloadSeq || !isEnabled()) return; // a newer reload is on its way
+                applySettings(next);
+                sender.sendMessage("BRR: config reloaded. Whitelist size=" + next.replacementWhitelist.size());
+            });
+        });
+    }
+
+    // Main thread. Publishes the snapshot and restarts only what depends on a changed value;
+    // queued chunk work and untouched timers keep running and read the new snapshot from here on.
+    private void applySettings(Settings next) {
+        Settings old = settings;
+        settings = next;
+        tickBudget.configure(next.tickBudgetMs, next.adaptiveBudget, next.adaptiveMinMs, next.adaptiveMaxMs,
+                next.adaptiveIdleShare, next.adaptiveBackoffFromMspt);
+        // Whitelist or weights changed: recompile each world's current epoch against them
+        boolean repalette = old != null && !next.samePalette(old);
+        boolean restagger = old == null || !next.sameRotationTimer(old);
+        for (WorldProfile p : profiles) {
+            if (p == null) continue;
+            if (p.configure(next)) restagger = true;
+            if (repalette) p.palette = buildPalette(p, p.palette.epoch);
+        }
+        if (old == null || next.periodicSeconds != old.periodicSeconds) scheduleOrCancelPeriodic();
+        if (restagger) schedulePaletteRotation();
+        scheduleOrCancelPranks(old);
     }
 
     private void scheduleOrCancelPeriodic() {
@@ -270,286 +229,289 @@ public class BlockRandomizerReloaded extends JavaPlugin {
             periodicTask.cancel();
             periodicTask = null;
         }
-        if (periodicSeconds > 0) {
-            long periodTicks = Math.max(1, periodicSeconds * 20L);
+        periodicSweep.clear();
+        if (settings.periodicSeconds > 0) {
+            long periodTicks = Math.max(1, settings.periodicSeconds * 20L);
+            // A slice of the sweep every tick, so one full pass takes one period; chunks
+            // already on this epoch with no block changes since the last visit are skipped
             periodicTask = Bukkit.getScheduler().runTaskTimer(this, () -> {
-                for (World w : Bukkit.getWorlds()) {
-                    if (!isWorldEnabled(w)) continue;
-                    for (Chunk c : w.getLoadedChunks()) {
-                        queueChunk(c);
+                if (periodicSweep.isDone()) {
+                    List<World> worlds = new ArrayList<>();
+                    for (World w : Bukkit.getWorlds()) {
+                        if (isWorldEnabled(w)) worlds.add(w);
                     }
+                    periodicSweep.start(worlds);
+                }
+                int n = periodicSweep.perTick(periodTicks);
+                for (int i = 0; i < n && !periodicSweep.isDone(); i++) {
+                    long key = periodicSweep.next();
+                    Chunk c = loadedChunk(key);
+                    if (c == null) continue;
+                    boolean dirty = periodicSweep.takeDirty(key);
+                    if (dirty || !isChunkCurrent(c)) queueChunk(c, ChunkWorkScheduler.Lane.BACKGROUND);
                 }
-            }, periodTicks, periodTicks);
+            }, 1L, 1L);
         }
-        schedulePaletteRotation();
     }
 
+    // One check per second for every world; rotations themselves follow each world's own
+    // period and stagger (see restaggerRotations)
     private void schedulePaletteRotation() {
         if (paletteTask != null) {
             paletteTask.cancel();
             paletteTask = null;
         }
-        boolean paletteEnabled = getConfig().getConfigurationSection("palette") == null || getConfig().getConfigurationSection("palette").getBoolean("enabled", true);
-        int rotateSec = getConfig().getConfigurationSection("palette") != null ? getConfig().getConfigurationSection("palette").getInt("rotation-seconds", 60) : 60;
-        if (paletteEnabled && rotateSec > 0) {
-            long ticks = Math.max(20L, rotateSec * 20L);
-            paletteTask = Bukkit.getScheduler().runTaskTimer(this, () -> rotatePalette(), ticks, ticks);
+        restaggerRotations();
+        if (!settings.paletteEnabled) return;
+        paletteTask = Bukkit.getScheduler().runTaskTimer(this, this::rotateDueWorlds, 20L, 20L);
+    }
+
+    // Spreads the rotating worlds over their periods: world k of n is k/n of a period
+    // behind the first, so their requeue sweeps do not start together
+    private void restaggerRotations() {
+        int n = 0;
+        for (WorldProfile p : profiles) {
+            if (p != null && p.rotates()) n++;
+        }
+        int k = 0;
+        long now = Bukkit.getCurrentTick();
+        for (WorldProfile p : profiles) {
+            if (p == null) continue;
+            if (!p.rotates()) {
+                p.nextRotationTick = Long.MAX_VALUE;
+                continue;
+            }
+            p.phaseSeconds = (long) p.rotationSeconds * k++ / n;
+            p.nextRotationTick = nextRotationTick(p, now);
+        }
+    }
+
+    // Counter epochs: the first tick after now on this world's schedule (origin + phase + m * period)
+    private long nextRotationTick(WorldProfile p, long now) {
+        long period = Math.max(20L, p.rotationSeconds * 20L);
+        long first = rotationOriginTick + p.phaseSeconds * 20L + period;
+        if (now < first) return first;
+        return first + ((now - first) / period + 1) * period;
+    }
+
+    // At most one world per check, and none within MIN_ROTATION_GAP_TICKS of the last one;
+    // a world held back stays due and goes at the next free check
+    private void rotateDueWorlds() {
+        long now = Bukkit.getCurrentTick();
+        if (now - lastRotationTick < MIN_ROTATION_GAP_TICKS) return;
+        for (WorldProfile p : profiles) {
+            if (p == null || !p.rotates()) continue;
+            World w = worldIndex.world(p.index);
+            if (w == null) continue;
+            if (settings.clockEpochs) {
+                // Wall-clock slots: every server agrees on the epoch, so just follow the clock
+                int e = clockEpoch(p);
+                if (e <= p.palette.epoch) continue;
+                rotatePalette(p, w, e);
+            } else {
+                if (now < p.nextRotationTick) continue;
+                p.nextRotationTick = nextRotationTick(p, now);
+                rotatePalette(p, w, p.palette.epoch + 1);
+            }
+            return;
+        }
+    }
+
+    private int clockEpoch(WorldProfile p) {
+        int period = Math.max(1, p.rotates() ? p.rotationSeconds : settings.rotationSeconds);
+        return (int) Math.floorDiv(System.currentTimeMillis() / 1000L - p.phaseSeconds, (long) period);
+    }
+
+    // Epoch a world starts with. The counter lives in each world's PDC; worlds without one
+    // yet take the first world's, where a single shared counter used to be kept. Random
+    // palettes cannot be rebuilt after a restart, so they always start on a fresh epoch;
+    // that also keeps the chunk ledger from matching marks made with the old palette.
+    private int startupEpoch(WorldProfile p, World w) {
+        if (settings.deterministicPalette && settings.clockEpochs) return clockEpoch(p);
+        Integer stored = w.getPersistentDataContainer().get(paletteEpochKey, PersistentDataType.INTEGER);
+        if (stored == null && !Bukkit.getWorlds().isEmpty()) {
+            stored = Bukkit.getWorlds().get(0).getPersistentDataContainer().get(paletteEpochKey, PersistentDataType.INTEGER);
         }
+        int epoch = stored != null ? stored : 0;
+        if (!settings.deterministicPalette) {
+            epoch++;
+            storeEpoch(w, epoch);
+        }
+        return epoch;
     }
 
-    private final Map<Material, Material> paletteMap = new EnumMap<>(Material.class);
-    private final Map<Material, Material> dropPaletteMap = new EnumMap<>(Material.class);
+    private void storeEpoch(World w, int epoch) {
+        if (settings.clockEpochs && settings.deterministicPalette) return;
+        w.getPersistentDataContainer().set(paletteEpochKey, PersistentDataType.INTEGER, epoch);
+    }
 
-    private void rotatePalette() {
-        paletteMap.clear();
-        dropPaletteMap.clear();
-        paletteEpoch++;
-        getLogger().info("BRR palette rotated. Epoch=" + paletteEpoch + ". Re-queueing loaded chunks...");
+    private void rotatePalette(WorldProfile p, World w, int epoch) {
+        p.palette = buildPalette(p, epoch);
+        storeEpoch(w, epoch);
+        lastRotationTick = Bukkit.getCurrentTick();
+        getLogger().info("BRR palette rotated in " + p.name + ". Epoch=" + epoch + ". Re-queueing loaded chunks...");
         // Optional: randomize weather and time on rotate
-        if (randomizeWeatherOnRotate) {
-            randomizeWeatherAndTime();
-        }
-        // Re-queue loaded chunks gradually to avoid lag spikes
-        requeueQueue.clear();
-        for (World w : Bukkit.getWorlds()) {
-            if (!isWorldEnabled(w)) continue;
-            for (Chunk c : w.getLoadedChunks()) {
-                requeueQueue.add(c);
+        if (settings.randomizeWeatherOnRotate) {
+            randomizeWeatherAndTime(w);
+        }
+        // Catch up loaded chunks gradually to avoid lag spikes, nearest to players first.
+        // Back-to-back rotations coalesce: the sweep just restarts against the newest epochs
+        // and work still running for an older one is upgraded in place (upgradeIfStale).
+        requeueQueue.invalidate();
+        if (requeueTask == null) {
+            requeueTask = Bukkit.getScheduler().runTaskTimer(this, this::drainRequeue, 1L, 1L);
+        }
+    }
+
+    // Stays scheduled once a rotation happened: loaded chunks that come into view later
+    // still need the current epoch. Cheap when nothing changed (see ProximityQueue), and
+    // the ledger answers from memory once it has read a loaded chunk's epoch.
+    private void drainRequeue() {
+        int n = 0;
+        // both knobs stretch and shrink with the adaptive tick budget
+        Settings s = settings;
+        double scale = tickBudget.scale();
+        int perTickNow = Math.max(1, (int) (s.requeuePerTick * scale));
+        int activeNow = Math.max(1, (int) (s.maxActiveChunkTasks * scale));
+        long deadline = tickBudget.deadline();
+        requeueQueue.refreshIfDue(this::requeueState);
+        while (n < perTickNow && requeueQueue.hasReady()) {
+            // Avoid too many concurrent chunk workers; smooths spikes
+            if (chunkWork.size() + pendingPlans.size() >= activeNow) break;
+            if (System.nanoTime() >= deadline) break;
+            long key = requeueQueue.poll();
+            Chunk c = loadedChunk(key);
+            // may have caught up through a load or another trigger since the refresh
+            if (c != null && requeueState(c.getWorld(), c.getX(), c.getZ(), key) == ProximityQueue.WANTED) {
+                if (!queueIncremental(c)) queueChunk(c, ChunkWorkScheduler.Lane.BACKGROUND);
             }
+            n++;
         }
-        if (requeueTask != null) { requeueTask.cancel(); requeueTask = null; }
-        // read knob (fallback to current value)
-        int perTick = requeuePerTick;
-        ConfigurationSection palSec = getConfig().getConfigurationSection("palette");
-        if (palSec != null) {
-            perTick = Math.max(1, palSec.getInt("requeue-per-tick", requeuePerTick));
-            maxActiveChunkTasks = Math.max(1, palSec.getInt("max-active-chunk-tasks", maxActiveChunkTasks));
-        }
-        requeuePerTick = perTick;
-        requeueTask = Bukkit.getScheduler().runTaskTimer(this, () -> {
-            int n = 0;
-            while (n < requeuePerTick && !requeueQueue.isEmpty()) {
-                // Avoid too many concurrent chunk workers; smooths spikes
-                if (activeChunkTasks.size() >= maxActiveChunkTasks) break;
-                Chunk c = requeueQueue.pollFirst();
-                if (c != null) queueChunk(c);
-                n++;
-            }
-            if (requeueQueue.isEmpty()) {
-                BukkitTask t = requeueTask;
-                if (t != null) t.cancel();
-                requeueTask = null;
-            }
-        }, 1L, 1L);
     }
 
-    private void randomizeWeatherAndTime() {
-        for (World w : Bukkit.getWorlds()) {
-            if (!isWorldEnabled(w)) continue;
-            // Weather
-            double r = rng.nextDouble();
-            if (r < 0.2) {
-                w.setStorm(true);
-                w.setThundering(true);
-            } else if (r < 0.6) {
-                w.setStorm(true);
-                w.setThundering(false);
-            } else {
-                w.setStorm(false);
-                w.setThundering(false);
-            }
-            // Time of day: pick one of key anchors with some jitter
-            long[] anchors = new long[]{0L, 6000L, 12000L, 18000L};
-            long pick = anchors[rng.nextInt(anchors.length)];
-            long jitter = rng.nextInt(2000) - 1000; // +/- 1000 ticks
-            long t = (pick + jitter) & 23999L;
-            w.setTime(t);
-        }
-    }
-
-    public Material getPaletteReplacement(Material source) {
-        Material rep = paletteMap.get(source);
-        if (rep != null) return rep;
-        // Choose a deterministic-ish random per source per epoch
-        // But for simplicity, just pick a random allowed material not equal to source
-        Material picked = pickReplacementNotSource(source);
-        paletteMap.put(source, picked);
-        return picked;
-    }
-
-    // -------------------- Pranks (sounds + fake messages) --------------------
-    private void readPrankConfig(FileConfiguration cfg) {
-        ConfigurationSection troll = cfg.getConfigurationSection("trolling");
-        if (troll == null) troll = cfg.createSection("trolling");
-
-        // Sounds
-        ConfigurationSection s = troll.getConfigurationSection("sounds");
-        soundsEnabled = s == null || s.getBoolean("enabled", true);
-        soundCheckPeriodTicks = s != null ? s.getInt("check-period-ticks", 100) : 100;
-        soundPerCheckChance = s != null ? s.getDouble("per-check-chance", 0.03) : 0.03;
-        prankSounds.clear();
-        List<String> names = s != null ? s.getStringList("list") : Collections.emptyList();
-        if (names != null && !names.isEmpty()) {
-            for (String n : names) {
-                try {
-                    Sound snd = Sound.valueOf(n);
-                    prankSounds.add(snd);
-                } catch (IllegalArgumentException ignored) {
-                }
-            }
+    private int requeueState(World world, int cx, int cz, long key) {
+        WorldProfile p = profile(world);
+        if (!p.enabled) return ProximityQueue.CURRENT;
+        if (chunkWork.contains(key) || pendingPlans.containsKey(key) || parkedWork.containsKey(key)) {
+            return ProximityQueue.BUSY;
         }
-        if (prankSounds.isEmpty()) {
-            // Fallback curated defaults; filter for existence by catching above
-            String[] defaults = new String[]{
-                    "ENTITY_CREEPER_PRIMED",
-                    "ENTITY_GHAST_SCREAM",
-                    "ENTITY_GHAST_WARN",
-                    "ENTITY_ENDERMAN_SCREAM",
-                    "ENTITY_ENDERMAN_STARE",
-                    "ENTITY_PHANTOM_AMBIENT",
-                    "BLOCK_PORTAL_TRAVEL",
-                    "ENTITY_GENERIC_EXPLODE",
-                    "ENTITY_TNT_PRIMED"
-            };
-            for (String n : defaults) {
-                try { prankSounds.add(Sound.valueOf(n)); } catch (IllegalArgumentException ignored) {}
-            }
+        return ledger.isRandomized(world.getChunkAt(cx, cz), key, p.palette.epoch) ? ProximityQueue.CURRENT : ProximityQueue.WANTED;
+    }
+
+    // A randomizing unit ended without marking its chunk current (failed, parked, stale
+    // writes): players in that world may have been counted clean while it was in flight
+    private void requeueAgain(ChunkWork work) {
+        if (work.wholeChunk && work.randomizes()) requeueQueue.forgetWorld(WorldIndex.worldOf(work.key));
+    }
+
+    private void randomizeWeatherAndTime(World w) {
+        // Weather
+        double r = rng.nextDouble();
+        if (r < 0.2) {
+            w.setStorm(true);
+            w.setThundering(true);
+        } else if (r < 0.6) {
+            w.setStorm(true);
+            w.setThundering(false);
+        } else {
+            w.setStorm(false);
+            w.setThundering(false);
+        }
+        // Time of day: pick one of key anchors with some jitter
+        long[] anchors = new long[]{0L, 6000L, 12000L, 18000L};
+        long pick = anchors[rng.nextInt(anchors.length)];
+        long jitter = rng.nextInt(2000) - 1000; // +/- 1000 ticks
+        long t = (pick + jitter) & 23999L;
+        w.setTime(t);
+    }
+
+    // An explicit palette.seed is shared by all worlds; otherwise each world uses its own
+    private long derivationSeed(WorldProfile p) {
+        return settings.paletteSeed != 0L ? settings.paletteSeed : p.seed;
+    }
+
+    // Compiles a whole epoch up front: one pick per block material for world blocks and
+    // for drops. Main thread only (uses rng and the current whitelist).
+    private PaletteTable buildPalette(WorldProfile p, int epoch) {
+        if (settings.deterministicPalette) {
+            return PaletteTable.derive(derivationSeed(p), epoch, settings.replacementTable, settings.dropTable);
+        }
+        Material[] all = Material.values();
+        Material[] blocks = new Material[all.length];
+        Material[] drops = new Material[all.length];
+        for (Material m : all) {
+            if (!m.isBlock() || m.isAir()) continue;
+            Material pick = pickReplacementNotSource(m);
+            if (pick != null && pick != m && isAllowedReplacement(pick)) blocks[m.ordinal()] = pick;
+            drops[m.ordinal()] = pickDropReplacementNotSource(m);
         }
+        return new PaletteTable(epoch, blocks, drops);
+    }
 
-        // Fake messages
-        ConfigurationSection fm = troll.getConfigurationSection("fake-messages");
-        fakeMessagesEnabled = fm == null || fm.getBoolean("enabled", true);
-        fakeMsgMinMinutes = fm != null ? Math.max(1, fm.getInt("min-minutes", 2)) : 2;
-        fakeMsgMaxMinutes = fm != null ? Math.max(fakeMsgMinMinutes, fm.getInt("max-minutes", 20)) : 20;
-        fakeMessages = fm != null ? fm.getStringList("messages") : new ArrayList<>();
-        if (fakeMessages == null || fakeMessages.isEmpty()) {
-            fakeMessages = new ArrayList<>();
-            Collections.addAll(fakeMessages,
-                    "§eYou feel dizzy…",
-                    "§cYour memory fades…",
-                    "§7A cold breeze passes by.",
-                    "§5Whispers echo in the distance.",
-                    "§6Your hands tremble briefly.");
-        }
-
-        // Weather/time hook
-        ConfigurationSection wt = troll.getConfigurationSection("weather-time");
-        randomizeWeatherOnRotate = wt == null || wt.getBoolean("randomize-on-palette-rotate", true);
-
-        // Random teleports
-        ConfigurationSection tp = troll.getConfigurationSection("random-teleport");
-        teleportEnabled = tp == null || tp.getBoolean("enabled", true);
-        tpMinMinutes = tp != null ? Math.max(1, tp.getInt("min-minutes", 1)) : 1;
-        tpMaxMinutes = tp != null ? Math.max(tpMinMinutes, tp.getInt("max-minutes", 20)) : 20;
-        tpMinDistance = tp != null ? Math.max(1, tp.getInt("min-distance-blocks", 1)) : 1;
-        tpMaxDistance = tp != null ? Math.max(tpMinDistance, tp.getInt("max-distance-blocks", 10)) : 10;
-        tpMinCooldownSeconds = tp != null ? Math.max(1, tp.getInt("min-cooldown-seconds", 30)) : 30;
-
-        // Hand swap
-        ConfigurationSection hs = troll.getConfigurationSection("hand-swap");
-        handSwapEnabled = hs == null || hs.getBoolean("enabled", true);
-        handSwapMinMinutes = hs != null ? Math.max(1, hs.getInt("min-minutes", 2)) : 2;
-        handSwapMaxMinutes = hs != null ? Math.max(handSwapMinMinutes, hs.getInt("max-minutes", 15)) : 15;
-        handSwapCooldownSeconds = hs != null ? Math.max(1, hs.getInt("min-cooldown-seconds", 30)) : 30;
-
-        // Ghost items
-        ConfigurationSection gi = troll.getConfigurationSection("ghost-items");
-        ghostItemsEnabled = gi == null || gi.getBoolean("enabled", true);
-        ghostMinMinutes = gi != null ? Math.max(1, gi.getInt("min-minutes", 2)) : 2;
-        ghostMaxMinutes = gi != null ? Math.max(ghostMinMinutes, gi.getInt("max-minutes", 10)) : 10;
-        ghostPerEventMin = gi != null ? Math.max(1, gi.getInt("count-min", 1)) : 1;
-        ghostPerEventMax = gi != null ? Math.max(ghostPerEventMin, gi.getInt("count-max", 2)) : 2;
-        ghostDurationSeconds = gi != null ? Math.max(5, gi.getInt("duration-seconds", 30)) : 30;
-
-        // Hunger jumps
-        ConfigurationSection hj = troll.getConfigurationSection("hunger-jumps");
-        hungerEnabled = hj == null || hj.getBoolean("enabled", true);
-        hungerMinMinutes = hj != null ? Math.max(1, hj.getInt("min-minutes", 2)) : 2;
-        hungerMaxMinutes = hj != null ? Math.max(hungerMinMinutes, hj.getInt("max-minutes", 12)) : 12;
-        hungerMinDelta = hj != null ? hj.getInt("delta-min", -6) : -6;
-        hungerMaxDelta = hj != null ? Math.max(hungerMinDelta, hj.getInt("delta-max", 6)) : 6;
-        hungerCooldownSeconds = hj != null ? Math.max(1, hj.getInt("min-cooldown-seconds", 20)) : 20;
-    }
-
-    private void scheduleOrCancelPranks() {
+    // old == null (re)starts every timer; otherwise only those whose schedule changed
+    private void scheduleOrCancelPranks(Settings old) {
+        Settings s = settings;
         // Sounds task
-        if (soundsTask != null) { soundsTask.cancel(); soundsTask = null; }
-        if (soundsEnabled && !prankSounds.isEmpty() && soundCheckPeriodTicks > 0) {
-            long period = Math.max(1L, soundCheckPeriodTicks);
-            soundsTask = Bukkit.getScheduler().runTaskTimer(this, () -> {
-                for (Player p : Bukkit.getOnlinePlayers()) {
-                    World w = p.getWorld();
-                    if (!isWorldEnabled(w)) continue;
-                    if (rng.nextDouble() < soundPerCheckChance) {
-                        Sound snd = prankSounds.get(rng.nextInt(prankSounds.size()));
-                        Location base = p.getLocation();
-                        double dx = (rng.nextDouble() * 10.0) - 5.0;
-                        double dz = (rng.nextDouble() * 10.0) - 5.0;
-                        Location at = base.clone().add(dx, 0, dz);
-                        // Play only to the player to make it feel local and not spam others
-                        p.playSound(at, snd, 1.2f, 1.0f + (float)((rng.nextDouble() - 0.5) * 0.4));
+        if (old == null || !s.sameSoundsTimer(old)) {
+            if (soundsTask != null) { soundsTask.cancel(); soundsTask = null; }
+            if (s.soundsEnabled && !s.prankSounds.isEmpty() && s.soundCheckPeriodTicks > 0) {
+                long period = Math.max(1L, s.soundCheckPeriodTicks);
+                soundsTask = Bukkit.getScheduler().runTaskTimer(this, () -> {
+                    for (Player p : Bukkit.getOnlinePlayers()) {
+                        World w = p.getWorld();
+                        if (!profile(w).pranks) continue;
+                        if (rng.nextDouble() < settings.soundPerCheckChance) {
+                            Sound snd = settings.prankSounds.get(rng.nextInt(settings.prankSounds.size()));
+                            Location base = p.getLocation();
+                            double dx = (rng.nextDouble() * 10.0) - 5.0;
+                            double dz = (rng.nextDouble() * 10.0) - 5.0;
+                            Location at = base.clone().add(dx, 0, dz);
+                            // Play only to the player to make it feel local and not spam others
+                            p.playSound(at, snd, 1.2f, 1.0f + (float)((rng.nextDouble() - 0.5) * 0.4));
+                        }
                     }
-                }
-            }, period, period);
+                }, period, period);
+            }
         }
 
         // Fake messages task (recursive schedule with random delay)
-        if (fakeMessageTask != null) { fakeMessageTask.cancel(); fakeMessageTask = null; }
-        if (fakeMessagesEnabled && !fakeMessages.isEmpty()) {
-            scheduleNextFakeMessage();
+        if (old == null || !s.sameFakeMessageTimer(old)) {
+            if (fakeMessageTask != null) { fakeMessageTask.cancel(); fakeMessageTask = null; }
+            if (s.fakeMessagesEnabled && !s.fakeMessages.isEmpty()) scheduleNextFakeMessage();
         }
 
         // Random teleport task (recursive schedule with random delay)
-        if (teleportTask != null) { teleportTask.cancel(); teleportTask = null; }
-        if (teleportEnabled) {
-            scheduleNextTeleport();
+        if (old == null || !s.sameTeleportTimer(old)) {
+            if (teleportTask != null) { teleportTask.cancel(); teleportTask = null; }
+            if (s.teleportEnabled) scheduleNextTeleport();
         }
 
         // Hand swap task
-        if (handSwapTask != null) { handSwapTask.cancel(); handSwapTask = null; }
-        if (handSwapEnabled) {
-            scheduleNextHandSwap();
+        if (old == null || !s.sameHandSwapTimer(old)) {
+            if (handSwapTask != null) { handSwapTask.cancel(); handSwapTask = null; }
+            if (s.handSwapEnabled) scheduleNextHandSwap();
         }
 
         // Ghost items task
-        if (ghostItemTask != null) { ghostItemTask.cancel(); ghostItemTask = null; }
-        if (ghostItemsEnabled) {
-            scheduleNextGhostItems();
+        if (old == null || !s.sameGhostItemTimer(old)) {
+            if (ghostItemTask != null) { ghostItemTask.cancel(); ghostItemTask = null; }
+            if (s.ghostItemsEnabled) scheduleNextGhostItems();
         }
 
         // Hunger jumps task
-        if (hungerTask != null) { hungerTask.cancel(); hungerTask = null; }
-        if (hungerEnabled) {
-            scheduleNextHungerJump();
+        if (old == null || !s.sameHungerTimer(old)) {
+            if (hungerTask != null) { hungerTask.cancel(); hungerTask = null; }
+            if (s.hungerEnabled) scheduleNextHungerJump();
         }
     }
 
-    // -------------------- Drops configuration --------------------
-    private void readDropsConfig(FileConfiguration cfg) {
-        ConfigurationSection drops = cfg.getConfigurationSection("drops");
-        dropAllowNonBlockItems = drops == null || drops.getBoolean("allow-non-block-items", true);
-        dropIncludeValuables = drops == null || drops.getBoolean("include-valuables", true);
-        dropAmountMin = drops != null ? Math.max(1, drops.getInt("amount-min", 1)) : 1;
-        dropAmountMax = drops != null ? Math.max(dropAmountMin, drops.getInt("amount-max", 1)) : 1;
-        dropRegularItemChance = drops != null ? Math.max(0.0, Math.min(1.0, drops.getDouble("regular-item-chance", 0.05))) : 0.05;
-        dropValuableItemChance = drops != null ? Math.max(0.0, Math.min(1.0, drops.getDouble("valuable-item-chance", 0.01))) : 0.01;
-        ConfigurationSection enchant = drops != null ? drops.getConfigurationSection("enchant") : null;
-        dropEnchantEnabled = enchant == null || enchant.getBoolean("enabled", true);
-        dropEnchantChance = enchant != null ? Math.max(0.0, Math.min(1.0, enchant.getDouble("chance", 0.01))) : 0.01;
-        dropEnchantCountMin = enchant != null ? Math.max(1, enchant.getInt("count-min", 1)) : 1;
-        dropEnchantCountMax = enchant != null ? Math.max(dropEnchantCountMin, enchant.getInt("count-max", 3)) : 3;
-        dropEnchantLevelMin = enchant != null ? Math.max(1, enchant.getInt("level-min", 1)) : 1;
-        dropEnchantLevelMax = enchant != null ? Math.max(dropEnchantLevelMin, enchant.getInt("level-max", 5)) : 5;
-        dropEnchantUnsafeOnAnyItem = enchant == null || enchant.getBoolean("unsafe-on-any-item", true);
-    }
-
     private void scheduleNextFakeMessage() {
-        int minTicks = fakeMsgMinMinutes * 60 * 20;
-        int maxTicks = fakeMsgMaxMinutes * 60 * 20;
+        int minTicks = settings.fakeMsgMinMinutes * 60 * 20;
+        int maxTicks = settings.fakeMsgMaxMinutes * 60 * 20;
         int delay = ThreadLocalRandom.current().nextInt(minTicks, maxTicks + 1);
         fakeMessageTask = Bukkit.getScheduler().runTaskLater(this, () -> {
-            if (fakeMessagesEnabled && !fakeMessages.isEmpty()) {
-                String msg = fakeMessages.get(rng.nextInt(fakeMessages.size()));
+            if (settings.fakeMessagesEnabled && !settings.fakeMessages.isEmpty()) {
+                String msg = settings.fakeMessages.get(rng.nextInt(settings.fakeMessages.size()));
                 Bukkit.broadcastMessage(msg);
             }
             // schedule the next one
@@ -558,8 +520,8 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     }
 
     private void scheduleNextTeleport() {
-        int minTicks = tpMinMinutes * 60 * 20;
-        int maxTicks = tpMaxMinutes * 60 * 20;
+        int minTicks = settings.tpMinMinutes * 60 * 20;
+        int maxTicks = settings.tpMaxMinutes * 60 * 20;
         int delay = ThreadLocalRandom.current().nextInt(minTicks, maxTicks + 1);
         teleportTask = Bukkit.getScheduler().runTaskLater(this, () -> {
             try {
@@ -574,21 +536,21 @@ public class BlockRandomizerReloaded extends JavaPlugin {
         long now = System.currentTimeMillis();
         for (Player p : Bukkit.getOnlinePlayers()) {
             World w = p.getWorld();
-            if (!isWorldEnabled(w)) continue;
-            long last = lastTeleportAt.getOrDefault(p.getUniqueId(), 0L);
-            if ((now - last) >= tpMinCooldownSeconds * 1000L) {
+            if (!profile(w).pranks) continue;
+            long last = lastTeleportAt.get(WorldIndex.playerKey(p), 0L);
+            if ((now - last) >= settings.tpMinCooldownSeconds * 1000L) {
                 candidates.add(p);
             }
         }
         if (candidates.isEmpty()) return;
         Player target = candidates.get(rng.nextInt(candidates.size()));
-        Location dest = findSafeTeleportNear(target, tpMinDistance, tpMaxDistance);
+        Location dest = findSafeTeleportNear(target, settings.tpMinDistance, settings.tpMaxDistance);
         if (dest != null) {
             // add slight yaw change for disorientation
             dest.setYaw((float) rng.nextInt(360));
             dest.setPitch(target.getLocation().getPitch());
             if (target.teleport(dest)) {
-                lastTeleportAt.put(target.getUniqueId(), System.currentTimeMillis());
+                lastTeleportAt.put(WorldIndex.playerKey(target), System.currentTimeMillis());
             }
         }
     }
@@ -669,8 +631,8 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     }
 
     private void scheduleNextHandSwap() {
-        int minTicks = handSwapMinMinutes * 60 * 20;
-        int maxTicks = handSwapMaxMinutes * 60 * 20;
+        int minTicks = settings.handSwapMinMinutes * 60 * 20;
+        int maxTicks = settings.handSwapMaxMinutes * 60 * 20;
         int delay = ThreadLocalRandom.current().nextInt(minTicks, maxTicks + 1);
         handSwapTask = Bukkit.getScheduler().runTaskLater(this, () -> {
             try { performHandSwapEvent(); } catch (Throwable ignored) {}
@@ -682,9 +644,9 @@ public class BlockRandomizerReloaded extends JavaPlugin {
         List<Player> candidates = new ArrayList<>();
         long now = System.currentTimeMillis();
         for (Player p : Bukkit.getOnlinePlayers()) {
-            if (!isWorldEnabled(p.getWorld())) continue;
-            long last = lastHandSwapAt.getOrDefault(p.getUniqueId(), 0L);
-            if ((now - last) >= handSwapCooldownSeconds * 1000L) {
+            if (!profile(p.getWorld()).pranks) continue;
+            long last = lastHandSwapAt.get(WorldIndex.playerKey(p), 0L);
+            if ((now - last) >= settings.handSwapCooldownSeconds * 1000L) {
                 candidates.add(p);
             }
         }
@@ -695,12 +657,12 @@ public class BlockRandomizerReloaded extends JavaPlugin {
         org.bukkit.inventory.ItemStack off = inv.getItemInOffHand();
         inv.setItemInMainHand(off);
         inv.setItemInOffHand(main);
-        lastHandSwapAt.put(target.getUniqueId(), System.currentTimeMillis());
+        lastHandSwapAt.put(WorldIndex.playerKey(target), System.currentTimeMillis());
     }
 
     private void scheduleNextGhostItems() {
-        int minTicks = ghostMinMinutes * 60 * 20;
-        int maxTicks = ghostMaxMinutes * 60 * 20;
+        int minTicks = settings.ghostMinMinutes * 60 * 20;
+        int maxTicks = settings.ghostMaxMinutes * 60 * 20;
         int delay = ThreadLocalRandom.current().nextInt(minTicks, maxTicks + 1);
         ghostItemTask = Bukkit.getScheduler().runTaskLater(this, () -> {
             try { performGhostItemEvent(); } catch (Throwable ignored) {}
@@ -712,15 +674,15 @@ public class BlockRandomizerReloaded extends JavaPlugin {
         List<Player> online = new ArrayList<>(Bukkit.getOnlinePlayers());
         if (online.isEmpty()) return;
         Player p = online.get(rng.nextInt(online.size()));
-        if (!isWorldEnabled(p.getWorld())) return;
+        if (!profile(p.getWorld()).pranks) return;
 
-        int count = ghostPerEventMin + rng.nextInt(Math.max(1, ghostPerEventMax - ghostPerEventMin + 1));
+        int count = settings.ghostPerEventMin + rng.nextInt(Math.max(1, settings.ghostPerEventMax - settings.ghostPerEventMin + 1));
         for (int i = 0; i < count; i++) {
             int slot = pickRandomEmptyInventorySlot(p);
             if (slot < 0) break;
             org.bukkit.inventory.ItemStack ghost = makeGhostItem();
             p.getInventory().setItem(slot, ghost);
-            long removeDelay = Math.max(20L, ghostDurationSeconds * 20L);
+            long removeDelay = Math.max(20L, settings.ghostDurationSeconds * 20L);
             Bukkit.getScheduler().runTaskLater(this, () -> {
             org.bukkit.inventory.ItemStack cur = p.getInventory().getItem(slot);
             if (cur != null && isGhostItem(cur)) {
@@ -794,8 +756,8 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     }
 
     private void scheduleNextHungerJump() {
-        int minTicks = hungerMinMinutes * 60 * 20;
-        int maxTicks = hungerMaxMinutes * 60 * 20;
+        int minTicks = settings.hungerMinMinutes * 60 * 20;
+        int maxTicks = settings.hungerMaxMinutes * 60 * 20;
         int delay = ThreadLocalRandom.current().nextInt(minTicks, maxTicks + 1);
         hungerTask = Bukkit.getScheduler().runTaskLater(this, () -> {
             try { performHungerJumpEvent(); } catch (Throwable ignored) {}
@@ -807,533 +769,151 @@ public class BlockRandomizerReloaded extends JavaPlugin {
         List<Player> candidates = new ArrayList<>();
         long now = System.currentTimeMillis();
         for (Player p : Bukkit.getOnlinePlayers()) {
-            if (!isWorldEnabled(p.getWorld())) continue;
-            long last = lastHungerAt.getOrDefault(p.getUniqueId(), 0L);
-            if ((now - last) >= hungerCooldownSeconds * 1000L) {
+            if (!profile(p.getWorld()).pranks) continue;
+            long last = lastHungerAt.get(WorldIndex.playerKey(p), 0L);
+            if ((now - last) >= settings.hungerCooldownSeconds * 1000L) {
                 candidates.add(p);
             }
         }
         if (candidates.isEmpty()) return;
         Player target = candidates.get(rng.nextInt(candidates.size()));
-        int delta = hungerMinDelta + rng.nextInt(Math.max(1, hungerMaxDelta - hungerMinDelta + 1));
+        int delta = settings.hungerMinDelta + rng.nextInt(Math.max(1, settings.hungerMaxDelta - settings.hungerMinDelta + 1));
         int newFood = Math.max(0, Math.min(20, target.getFoodLevel() + delta));
         target.setFoodLevel(newFood);
-        lastHungerAt.put(target.getUniqueId(), System.currentTimeMillis());
+        lastHungerAt.put(WorldIndex.playerKey(target), System.currentTimeMillis());
     }
 
+    // null when the whitelist holds nothing but the source
     private Material pickReplacementNotSource(Material source) {
-        Material pick = pickRandomMaterial(rng);
-        // try a few times to avoid identical replacement
-        for (int i = 0; i < 8 && pick == source; i++) {
-            pick = pickRandomMaterial(rng);
-        }
-        if (pick == Material.WATER || pick == Material.LAVA) return Material.STONE;
-        return pick;
+        if (settings.replacementTable.isEmpty()) return Material.STONE;
+        return settings.replacementTable.pickNot(source, rng);
     }
 
     // Drop palette (allows disallowed categories for drops only; still forbids WATER/LAVA)
-    public Material getDropPaletteReplacement(Material source) {
-        Material rep = dropPaletteMap.get(source);
-        if (rep != null) return rep;
-        Material picked = pickDropReplacementNotSource(source);
-        dropPaletteMap.put(source, picked);
-        return picked;
-    }
-
-    private final Set<Material> dropCandidates = EnumSet.noneOf(Material.class);
-    private List<Material> dropList = new ArrayList<>(); // blocks only
-    // Curated important non-block items (valuables, very rare)
-    private static final Material[] IMPORTANT_DROP_ITEMS = new Material[] {
-            // Rares / progression
-            Material.ELYTRA, Material.TOTEM_OF_UNDYING, Material.NETHER_STAR,
-            Material.NETHERITE_INGOT, Material.ANCIENT_DEBRIS,
-            Material.ENCHANTED_GOLDEN_APPLE,
-            Material.HEART_OF_THE_SEA, Material.BEACON, Material.SHULKER_BOX,
-            Material.DRAGON_HEAD, Material.DRAGON_EGG,
-            // High-tier gear
-            Material.TRIDENT,
-            Material.DIAMOND_SWORD, Material.DIAMOND_PICKAXE, Material.DIAMOND_AXE, Material.DIAMOND_SHOVEL,
-            Material.DIAMOND_HELMET, Material.DIAMOND_CHESTPLATE, Material.DIAMOND_LEGGINGS, Material.DIAMOND_BOOTS,
-            Material.NETHERITE_SWORD, Material.NETHERITE_PICKAXE, Material.NETHERITE_AXE, Material.NETHERITE_SHOVEL,
-            Material.NETHERITE_HELMET, Material.NETHERITE_CHESTPLATE, Material.NETHERITE_LEGGINGS, Material.NETHERITE_BOOTS,
-            // Rare utility
-            Material.ENCHANTED_BOOK
-    };
-    // Regular non-block items (tools/armor/potions/utility) at 5%
-    private static final Material[] REGULAR_ITEM_ITEMS = new Material[] {
-            // Mid-tier gear
-            Material.IRON_SWORD, Material.IRON_PICKAXE, Material.IRON_AXE, Material.IRON_SHOVEL,
-            Material.IRON_HELMET, Material.IRON_CHESTPLATE, Material.IRON_LEGGINGS, Material.IRON_BOOTS,
-            Material.GOLDEN_SWORD, Material.GOLDEN_PICKAXE, Material.GOLDEN_AXE, Material.GOLDEN_SHOVEL,
-            Material.GOLDEN_HELMET, Material.GOLDEN_CHESTPLATE, Material.GOLDEN_LEGGINGS, Material.GOLDEN_BOOTS,
-            Material.SHIELD, Material.BOW, Material.CROSSBOW,
-            // Utility
-            Material.ENDER_PEARL, Material.ENDER_EYE, Material.EXPERIENCE_BOTTLE,
-            // Potions (all kinds handled via meta)
-            Material.POTION, Material.SPLASH_POTION, Material.LINGERING_POTION
-    };
-    // Food items
-    private static final Material[] FOOD_ITEMS = new Material[] {
-            Material.BREAD, Material.COOKED_BEEF, Material.COOKED_PORKCHOP, Material.COOKED_CHICKEN,
-            Material.COOKED_MUTTON, Material.COOKED_RABBIT, Material.COOKED_COD, Material.COOKED_SALMON,
-            Material.GOLDEN_CARROT, Material.CARROT, Material.POTATO, Material.BAKED_POTATO,
-            Material.BEETROOT, Material.BEETROOT_SOUP, Material.MUSHROOM_STEW, Material.RABBIT_STEW,
-            Material.PUMPKIN_PIE, Material.COOKIE, Material.MELON_SLICE, Material.SWEET_BERRIES,
-            Material.GLOW_BERRIES, Material.HONEY_BOTTLE, Material.CHORUS_FRUIT
-    };
-    private final List<Material> valuableItemList = new ArrayList<>();
-    private final List<Material> regularItemList = new ArrayList<>();
-
-    private void buildDropCandidates() {
-        dropCandidates.clear();
-        for (Material m : Material.values()) {
-            if (!isValidDropMaterial(m)) continue;
-            dropCandidates.add(m);
-        }
-        dropList = new ArrayList<>(dropCandidates);
-        if (dropList.isEmpty()) {
-            dropList.add(Material.STONE);
-        }
-    }
-
-    private void buildItemPools() {
-        valuableItemList.clear();
-        regularItemList.clear();
-        if (dropAllowNonBlockItems && dropIncludeValuables) {
-            for (Material it : IMPORTANT_DROP_ITEMS) {
-                if (it == null || it.isAir() || it == Material.WATER || it == Material.LAVA) continue;
-                try {
-                    boolean ok = true;
-                    try { if (!it.isItem()) ok = false; } catch (NoSuchMethodError ignored) {
-                        org.bukkit.inventory.ItemStack test = new org.bukkit.inventory.ItemStack(it, 1);
-                        if (test.getType() == Material.AIR) ok = false;
-                    }
-                    if (ok) valuableItemList.add(it);
-                } catch (Throwable ignored) {}
-            }
-        }
-        if (dropAllowNonBlockItems) {
-            for (Material it : REGULAR_ITEM_ITEMS) {
-                if (it == null || it.isAir() || it == Material.WATER || it == Material.LAVA) continue;
-                try {
-                    boolean ok = true;
-                    try { if (!it.isItem()) ok = false; } catch (NoSuchMethodError ignored) {
-                        org.bukkit.inventory.ItemStack test = new org.bukkit.inventory.ItemStack(it, 1);
-                        if (test.getType() == Material.AIR) ok = false;
-                    }
-                    if (ok) regularItemList.add(it);
-                } catch (Throwable ignored) {}
-            }
-            for (Material it : FOOD_ITEMS) {
-                if (it == null || it.isAir()) continue;
-                try {
-                    boolean ok = true;
-                    try { if (!it.isItem()) ok = false; } catch (NoSuchMethodError ignored) {
-                        org.bukkit.inventory.ItemStack test = new org.bukkit.inventory.ItemStack(it, 1);
-                        if (test.getType() == Material.AIR) ok = false;
-                    }
-                    if (ok) regularItemList.add(it);
-                } catch (Throwable ignored) {}
-            }
-        }
-        // Fallback guards
-        if (valuableItemList.isEmpty() && dropIncludeValuables) {
-            valuableItemList.add(Material.ENCHANTED_BOOK);
-        }
-        if (regularItemList.isEmpty()) {
-            regularItemList.add(Material.POTION);
-        }
-    }
-
-    private boolean isValidDropMaterial(Material m) {
-        if (m == null) return false;
-        // Always allow blocks; optionally allow curated non-block items elsewhere
-        if (!m.isBlock()) return false; // non-block items are added via IMPORTANT_DROP_ITEMS
-        if (m.isAir()) return false;
-        if (m == Material.WATER || m == Material.LAVA) return false;
-        String n = m.name();
-        // Exclude obviously invalid or ephemeral blocks that have no real item
-        if (n.equals("STRUCTURE_VOID") || n.equals("JIGSAW") || n.equals("LIGHT") ||
-            n.equals("PISTON_HEAD") || n.equals("MOVING_PISTON") ||
-            n.equals("NETHER_PORTAL") || n.equals("END_PORTAL") || n.equals("END_GATEWAY") ||
-            n.equals("FIRE") || n.equals("SOUL_FIRE") || n.equals("BUBBLE_COLUMN")) {
-            return false;
-        }
-        // Must be representable as an inventory item
-        try {
-            try {
-                // Modern API
-                if (!m.isItem()) return false;
-            } catch (NoSuchMethodError ignored) {
-                // Fallback: attempt to construct an ItemStack
-                org.bukkit.inventory.ItemStack test = new org.bukkit.inventory.ItemStack(m, 1);
-                if (test.getType() == Material.AIR) return false;
-            }
-        } catch (Throwable t) {
-            return false;
-        }
-        return true;
+    public Material getDropPaletteReplacement(World w, Material source) {
+        return profile(w).palette.drop(source);
     }
 
     private Material pickDropReplacementNotSource(Material source) {
-        if (dropList.isEmpty()) buildDropCandidates();
-        Material pick = dropList.get(rng.nextInt(dropList.size()));
-        for (int i = 0; i < 8 && pick == source; i++) {
-            pick = dropList.get(rng.nextInt(dropList.size()));
-        }
-        if (pick == Material.WATER || pick == Material.LAVA) return Material.STONE;
-        return pick;
+        if (settings.dropTable.isEmpty()) return Material.STONE;
+        Material pick = settings.dropTable.pickNot(source, rng);
+        return pick != null ? pick : source;
     }
 
-    // Build an ItemStack for the random drop (may include meta and crazy enchants)
-    public org.bukkit.inventory.ItemStack getRandomDropForSource(Material source) {
-        org.bukkit.inventory.ItemStack base;
+    // Build an ItemStack for the random drop (may include meta and crazy enchants).
+    // Cloned from a template; all meta changes happen in one pass at the end.
+    public org.bukkit.inventory.ItemStack getRandomDropForSource(World w, Material source) {
+        Material m;
         // Weighted category selection: valuables (1%), regular items (5%), otherwise blocks
-        if (dropAllowNonBlockItems) {
+        if (settings.dropAllowNonBlockItems) {
             double r = rng.nextDouble();
-            if (dropIncludeValuables && r < dropValuableItemChance && !valuableItemList.isEmpty()) {
-                Material pick = valuableItemList.get(rng.nextInt(valuableItemList.size()));
-                base = buildBaseDropStack(pick);
-            } else if (r < dropValuableItemChance + dropRegularItemChance && !regularItemList.isEmpty()) {
-                Material pick = regularItemList.get(rng.nextInt(regularItemList.size()));
-                base = buildBaseDropStack(pick);
+            if (settings.dropIncludeValuables && r < settings.dropValuableItemChance && !settings.valuableItemList.isEmpty()) {
+                m = settings.valuableItemList.get(rng.nextInt(settings.valuableItemList.size()));
+            } else if (r < settings.dropValuableItemChance + settings.dropRegularItemChance && !settings.regularItemList.isEmpty()) {
+                m = settings.regularItemList.get(rng.nextInt(settings.regularItemList.size()));
             } else {
-                Material m = getDropPaletteReplacement(source); // blocks only
+                m = getDropPaletteReplacement(w, source); // blocks only
                 if (m == null || m.isAir() || m == Material.WATER || m == Material.LAVA) return null;
-                base = buildBaseDropStack(m);
             }
         } else {
-            Material m = getDropPaletteReplacement(source);
+            m = getDropPaletteReplacement(w, source);
             if (m == null || m.isAir() || m == Material.WATER || m == Material.LAVA) return null;
-            base = buildBaseDropStack(m);
         }
+        org.bukkit.inventory.ItemStack base = dropTemplates.stack(m, rng);
         // Amount randomization (respect max stack size)
-        int amtMin = Math.max(1, dropAmountMin);
-        int amtMax = Math.max(amtMin, dropAmountMax);
+        int amtMin = Math.max(1, settings.dropAmountMin);
+        int amtMax = Math.max(amtMin, settings.dropAmountMax);
         int amount = amtMin == amtMax ? amtMin : (amtMin + rng.nextInt(Math.max(1, amtMax - amtMin + 1)));
         amount = Math.max(1, Math.min(amount, base.getMaxStackSize()));
         base.setAmount(amount);
-        // Optional crazy enchants
-        maybeApplyCrazyEnchant(base);
+        applyDropEnchants(base);
         return base;
     }
 
-    private org.bukkit.inventory.ItemStack buildBaseDropStack(Material m) {
-        // Special handling for potions and enchanted books; otherwise vanilla stack
-        try {
-            if (m == Material.POTION || m == Material.SPLASH_POTION || m == Material.LINGERING_POTION) {
-                return makeRandomPotion(m);
-            }
-            if (m == Material.ENCHANTED_BOOK) {
-                return makeRandomEnchantedBook();
-            }
-        } catch (Throwable ignored) {}
-        return new org.bukkit.inventory.ItemStack(m, 1);
-    }
-
-    private org.bukkit.inventory.ItemStack makeRandomPotion(Material potionMat) {
-        org.bukkit.inventory.ItemStack it = new org.bukkit.inventory.ItemStack(potionMat, 1);
-        try {
-            org.bukkit.inventory.meta.ItemMeta raw = it.getItemMeta();
-            if (raw instanceof org.bukkit.inventory.meta.PotionMeta) {
-                org.bukkit.inventory.meta.PotionMeta pm = (org.bukkit.inventory.meta.PotionMeta) raw;
-                PotionType[] types = PotionType.values();
-                // Avoid UNCRAFTABLE if present
-                PotionType pick = types[rng.nextInt(types.length)];
-                int guard = 0;
-                while (pick == PotionType.UNCRAFTABLE && guard++ < 10) {
-                    pick = types[rng.nextInt(types.length)];
-                }
-                boolean extended = rng.nextBoolean();
-                boolean upgraded = rng.nextBoolean();
-                // Some potion types can't be extended/upgraded; API will clamp
-                pm.setBasePotionData(new PotionData(pick, extended, upgraded));
-                it.setItemMeta(pm);
-            }
-        } catch (Throwable ignored) {}
-        return it;
-    }
-
-    private org.bukkit.inventory.ItemStack makeRandomEnchantedBook() {
-        org.bukkit.inventory.ItemStack it = new org.bukkit.inventory.ItemStack(Material.ENCHANTED_BOOK, 1);
+    // Enchanted books get 1-2 random stored enchants; any drop may get the crazy enchants.
+    // One getItemMeta/setItemMeta for all of them.
+    private void applyDropEnchants(org.bukkit.inventory.ItemStack it) {
+        Settings s = settings;
+        boolean book = it.getType() == Material.ENCHANTED_BOOK;
+        int bookCount = book ? 1 + rng.nextInt(2) : 0;
+        boolean crazy = s.dropEnchantEnabled && rng.nextDouble() < s.dropEnchantChance;
+        if (bookCount == 0 && !crazy) return;
         try {
             org.bukkit.inventory.meta.ItemMeta meta = it.getItemMeta();
-            if (meta instanceof EnchantmentStorageMeta) {
-                EnchantmentStorageMeta em = (EnchantmentStorageMeta) meta;
-                Enchantment[] all = Enchantment.values();
-                int count = 1 + rng.nextInt(2);
-                for (int i = 0; i < count; i++) {
-                    Enchantment e = all[rng.nextInt(all.length)];
-                    int lvl = 1 + rng.nextInt(4);
-                    try { em.addStoredEnchant(e, lvl, true); } catch (Throwable ignored) {}
+            if (meta == null) return;
+            EnchantmentStorageMeta stored = meta instanceof EnchantmentStorageMeta ? (EnchantmentStorageMeta) meta : null;
+            Enchantment[] all = dropTemplates.all();
+            if (stored != null && all.length > 0) {
+                for (int i = 0; i < bookCount; i++) {
+                    stored.addStoredEnchant(all[rng.nextInt(all.length)], 1 + rng.nextInt(4), true);
                 }
-                it.setItemMeta(em);
             }
-        } catch (Throwable ignored) {}
-        return it;
-    }
-
-    private void maybeApplyCrazyEnchant(org.bukkit.inventory.ItemStack it) {
-        if (!dropEnchantEnabled) return;
-        if (rng.nextDouble() >= dropEnchantChance) return;
-        try {
-            Enchantment[] pool = Enchantment.values();
-            int count = dropEnchantCountMin + rng.nextInt(Math.max(1, dropEnchantCountMax - dropEnchantCountMin + 1));
-            count = Math.max(1, count);
-            for (int i = 0; i < count; i++) {
-                Enchantment e = pool[rng.nextInt(pool.length)];
-                int lvl = dropEnchantLevelMin + rng.nextInt(Math.max(1, dropEnchantLevelMax - dropEnchantLevelMin + 1));
-                if (it.getType() == Material.ENCHANTED_BOOK) {
-                    org.bukkit.inventory.meta.ItemMeta meta = it.getItemMeta();
-                    if (meta instanceof EnchantmentStorageMeta) {
-                        EnchantmentStorageMeta em = (EnchantmentStorageMeta) meta;
-                        try { em.addStoredEnchant(e, lvl, true); } catch (Throwable ignored) {}
-                        it.setItemMeta(em);
-                    }
-                } else {
-                    if (dropEnchantUnsafeOnAnyItem) {
-                        it.addUnsafeEnchantment(e, lvl);
+            if (crazy) {
+                // unsafe: anything on anything; otherwise only what vanilla allows on this item
+                Enchantment[] pool = stored != null || s.dropEnchantUnsafeOnAnyItem ? all : dropTemplates.applicableTo(it.getType());
+                int count = s.dropEnchantCountMin + rng.nextInt(Math.max(1, s.dropEnchantCountMax - s.dropEnchantCountMin + 1));
+                count = pool.length == 0 ? 0 : Math.max(1, count);
+                for (int i = 0; i < count; i++) {
+                    Enchantment e = pool[rng.nextInt(pool.length)];
+                    int lvl = s.dropEnchantLevelMin + rng.nextInt(Math.max(1, s.dropEnchantLevelMax - s.dropEnchantLevelMin + 1));
+                    if (stored != null) {
+                        stored.addStoredEnchant(e, lvl, true);
                     } else {
-                        try { it.addEnchantment(e, lvl); } catch (IllegalArgumentException ignored) {}
+                        meta.addEnchant(e, lvl, s.dropEnchantUnsafeOnAnyItem); // safe mode skips out-of-range levels
                     }
                 }
             }
+            it.setItemMeta(meta);
         } catch (Throwable ignored) {}
     }
 
-    private void buildProtectedSourceBlocks() {
-        // Containers and block entities to never modify
-        // Chests
-        addIfPresent(protectedSourceBlocks, "CHEST");
-        addIfPresent(protectedSourceBlocks, "TRAPPED_CHEST");
-        addIfPresent(protectedSourceBlocks, "ENDER_CHEST");
-        addIfPresent(protectedSourceBlocks, "BARREL");
-        // Furnaces
-        addIfPresent(protectedSourceBlocks, "FURNACE");
-        addIfPresent(protectedSourceBlocks, "BLAST_FURNACE");
-        addIfPresent(protectedSourceBlocks, "SMOKER");
-        // Hopper/dispensers/droppers
-        addIfPresent(protectedSourceBlocks, "HOPPER");
-        addIfPresent(protectedSourceBlocks, "DROPPER");
-        addIfPresent(protectedSourceBlocks, "DISPENSER");
-        // Shulker boxes
-        for (Material m : Material.values()) {
-            String n = m.name();
-            if (n.equals("SHULKER_BOX") || n.endsWith("_SHULKER_BOX")) {
-                protectedSourceBlocks.add(m);
-            }
-        }
-        // Misc block entities and interactables
-        addIfPresent(protectedSourceBlocks, "JUKEBOX");
-        addIfPresent(protectedSourceBlocks, "NOTE_BLOCK");
-        addIfPresent(protectedSourceBlocks, "BEACON");
-        addIfPresent(protectedSourceBlocks, "CONDUIT");
-        addIfPresent(protectedSourceBlocks, "ENCHANTING_TABLE");
-        addIfPresent(protectedSourceBlocks, "BREWING_STAND");
-        addIfPresent(protectedSourceBlocks, "GRINDSTONE");
-        addIfPresent(protectedSourceBlocks, "STONECUTTER");
-        addIfPresent(protectedSourceBlocks, "LOOM");
-        addIfPresent(protectedSourceBlocks, "CARTOGRAPHY_TABLE");
-        addIfPresent(protectedSourceBlocks, "SMITHING_TABLE");
-        addIfPresent(protectedSourceBlocks, "COMPOSTER");
-        addIfPresent(protectedSourceBlocks, "LECTERN");
-        addIfPresent(protectedSourceBlocks, "CRAFTING_TABLE");
-        addIfPresent(protectedSourceBlocks, "FLETCHING_TABLE");
-        addIfPresent(protectedSourceBlocks, "BEE_NEST");
-        addIfPresent(protectedSourceBlocks, "BEEHIVE");
-        // Heads/skulls
-        for (Material m : Material.values()) {
-            String n = m.name();
-            if (n.endsWith("_HEAD") || n.endsWith("_WALL_HEAD") || n.endsWith("_SKULL") || n.endsWith("_WALL_SKULL") || n.equals("PLAYER_HEAD") || n.equals("PLAYER_WALL_HEAD")) {
-                protectedSourceBlocks.add(m);
-            }
-        }
-        // Spawner
-        addIfPresent(protectedSourceBlocks, "SPAWNER");
-    }
-
-    private void buildWhitelistFromConfig() {
-        FileConfiguration cfg = getConfig();
-
-        Set<String> excludedCategories = new HashSet<>(cfg.getStringList("exclusions.categories"));
-        Set<String> excludedMaterials = new HashSet<>(cfg.getStringList("exclusions.materials"));
-        Set<String> whitelistOverrides = new HashSet<>(cfg.getStringList("whitelist-overrides"));
-
-        // Build base allowlist by filtering all block materials with conservative rules
-        for (Material m : Material.values()) {
-            if (!m.isBlock()) continue;
-            if (m.isAir()) continue;
-            // Avoid liquids: Material does not expose isLiquid() reliably across API versions
-            if (m == Material.WATER || m == Material.LAVA) continue;
-            if (hasGravity(m)) continue;
-            if (!m.isSolid()) continue; // restrict to solid blocks (full-cube or translucent solids)
-            if (isWaterloggable(m)) continue; // avoid waterloggable blocks entirely
-            String name = m.name();
-
-            if (matchesNonFullOrThin(name)) continue;
-            if (matchesPlantOrFoliage(name)) continue;
-            if (matchesRedstoneOrUpdateable(name)) continue;
-            if (matchesPortalOrSpecial(name)) continue;
-            if (protectedSourceBlocks.contains(m)) continue; // never place containers/entities
-
-            if (excludedMaterials.contains(name)) continue;
-
-            // Category switches
-            if (excludedCategories.contains("LIQUIDS") && (name.contains("WATER") || name.contains("LAVA"))) continue;
-            if (excludedCategories.contains("GRAVITY") && hasGravity(m)) continue;
-            if (excludedCategories.contains("NON_FULL_BLOCKS") && !m.isSolid()) continue;
-            if (excludedCategories.contains("PLANTS") && matchesPlantOrFoliage(name)) continue;
-            if (excludedCategories.contains("REDSTONE") && matchesRedstoneOrUpdateable(name)) continue;
-            if (excludedCategories.contains("CONTAINERS") && isContainerName(name)) continue;
-            if (excludedCategories.contains("PORTALS") && matchesPortalOrSpecial(name)) continue;
-            if (excludedCategories.contains("SCULK_SENSORS") && name.contains("SCULK_SENSOR")) continue;
-            if (excludedCategories.contains("SCULK_SHRIEKER") && name.contains("SCULK_SHRIEKER")) continue;
-
-            // Specific blacklist additions
-            if (name.equals("DRAGON_EGG") || name.equals("BUDDING_AMETHYST") || name.equals("REDSTONE_BLOCK") || name.equals("SNOW") || name.equals("BELL") || name.equals("END_ROD") || name.equals("LIGHTNING_ROD") || name.equals("IRON_BARS") || name.equals("JUKEBOX") || name.equals("NOTE_BLOCK") || name.equals("DRIPSTONE_BLOCK") || name.equals("LECTERN") || name.equals("CRAFTING_TABLE") || name.equals("FARMLAND") || name.equals("STRUCTURE_BLOCK") || name.equals("STRUCTURE_VOID") || name.equals("JIGSAW") || name.equals("BARRIER") || name.equals("LIGHT") || name.equals("ICE") || name.equals("FROSTED_ICE")) {
-                continue;
-            }
-
-            replacementWhitelist.add(m);
-        }
-
-        // Explicit whitelist overrides
-        for (String s : whitelistOverrides) {
-            Material m = safeMaterial(s);
-            if (m == null || !m.isBlock()) continue;
-            if (m == Material.WATER || m == Material.LAVA) continue; // never allow liquids via overrides
-            if (m.name().equals("ICE") || m.name().equals("FROSTED_ICE")) continue; // avoid melting to water
-            if (isWaterloggable(m)) continue;
-            replacementWhitelist.add(m);
-        }
-    }
-
-    private boolean isWaterloggable(Material m) {
-        try {
-            return m.createBlockData() instanceof Waterlogged;
-        } catch (Throwable t) {
-            return false;
-        }
-    }
-
-    private boolean hasGravity(Material m) {
-        try {
-            return m.hasGravity();
-        } catch (NoSuchMethodError e) {
-            // fallback: heuristic by name
-            String n = m.name();
-            return n.endsWith("SAND") || n.endsWith("GRAVEL") || n.contains("CONCRETE_POWDER") || n.contains("ANVIL");
-        }
-    }
-
-    private boolean matchesNonFullOrThin(String n) {
-        return n.contains("SLAB") || n.contains("STAIRS") || n.contains("WALL") || n.contains("FENCE_GATE") || (n.endsWith("_FENCE") || n.equals("FENCE")) || n.contains("PANE") || n.equals("IRON_BARS") || n.equals("CHAIN") || n.endsWith("_BANNER") || n.endsWith("_BED") || n.endsWith("_CARPET") || n.equals("SNOW") || n.endsWith("_TRAPDOOR") || n.endsWith("_DOOR") || n.endsWith("_BUTTON") || n.equals("LEVER") || n.endsWith("PRESSURE_PLATE") || n.endsWith("_SIGN") || n.endsWith("_WALL_SIGN") || n.endsWith("TORCH") || n.equals("LANTERN") || n.endsWith("_LANTERN") || n.contains("CANDLE") || n.endsWith("_ROD") || n.equals("LADDER") || n.equals("VINE") || n.equals("SCAFFOLDING") || n.equals("CAMPFIRE") || n.equals("SOUL_CAMPFIRE") || n.equals("SEA_PICKLE") || n.equals("FLOWER_POT") || n.equals("CAKE") || n.contains("CAULDRON") || n.equals("POINTED_DRIPSTONE") || n.equals("AMETHYST_CLUSTER") || n.endsWith("_AMETHYST_BUD");
-    }
-
-    private boolean matchesPlantOrFoliage(String n) {
-        return n.endsWith("_FLOWER") || n.endsWith("_FLOWERS") || n.endsWith("_SAPLING") || n.endsWith("_MUSHROOM") || n.contains("TALL_") || n.equals("GRASS") || n.equals("FERN") || n.equals("LARGE_FERN") || n.equals("SWEET_BERRY_BUSH") || n.contains("LEAVES") || n.contains("SEAGRASS") || n.contains("KELP") || n.contains("VINES") || n.contains("CORAL") || n.contains("CORAL_FAN") || n.contains("CORAL_BLOCK") || n.contains("AZALEA") || n.contains("HANGING_ROOTS") || n.contains("MANGROVE_PROPAGULE") || n.contains("BAMBOO") || n.equals("CACTUS") || n.contains("TURTLE_EGG");
-    }
-
-    private boolean matchesRedstoneOrUpdateable(String n) {
-        return n.equals("REDSTONE_BLOCK") || n.equals("REDSTONE_WIRE") || n.equals("REPEATER") || n.equals("COMPARATOR") || n.contains("OBSERVER") || n.contains("RAIL") || n.equals("DAYLIGHT_DETECTOR") || n.contains("PISTON") || n.equals("SLIME_BLOCK") || n.equals("HONEY_BLOCK") || n.equals("TARGET") || n.contains("SCULK_SENSOR") || n.contains("SCULK_SHRIEKER") || n.contains("SCULK_CATALYST") || n.equals("SCULK") || n.equals("SCULK_VEIN") || n.equals("SCULK_BLOCK") || n.equals("TNT") || n.contains("COMMAND_BLOCK") || n.equals("LECTERN") || n.equals("CRAFTING_TABLE") || n.equals("FARMLAND") || n.equals("STRUCTURE_BLOCK") || n.equals("STRUCTURE_VOID") || n.equals("JIGSAW") || n.equals("BARRIER") || n.equals("LIGHT");
+    // Helpers used by listeners
+    Settings settings() {
+        return settings;
     }
 
-    private boolean matchesPortalOrSpecial(String n) {
-        return n.contains("_PORTAL") || n.contains("END_GATEWAY") || n.contains("PORTAL_FRAME") || n.equals("BUDDING_AMETHYST") || n.equals("DRAGON_EGG");
+    public boolean isWorldEnabled(World w) {
+        return profile(w).enabled;
     }
 
-    private boolean isContainerName(String n) {
-        return n.equals("CHEST") || n.equals("TRAPPED_CHEST") || n.equals("ENDER_CHEST") || n.equals("BARREL") || n.equals("FURNACE") || n.equals("BLAST_FURNACE") || n.equals("SMOKER") || n.equals("HOPPER") || n.equals("DROPPER") || n.equals("DISPENSER") || n.endsWith("_SHULKER_BOX") || n.equals("SHULKER_BOX");
+    // Main thread. Compiled on first use for a world and reconfigured in place on reload
+    WorldProfile profile(World w) {
+        int i = worldIndex.indexOf(w);
+        WorldProfile p = i < profiles.length ? profiles[i] : null;
+        return p != null ? p : createProfile(i, w);
     }
 
-    private void addIfPresent(Set<Material> set, String name) {
-        Material m = safeMaterial(name);
-        if (m != null) set.add(m);
+    // By world index (from a chunk key); null if that world is unloaded and was never seen
+    WorldProfile profile(int index) {
+        WorldProfile p = index < profiles.length ? profiles[index] : null;
+        if (p != null) return p;
+        World w = worldIndex.world(index);
+        return w != null ? profile(w) : null;
     }
 
-    private Material safeMaterial(String name) {
-        try {
-            return Material.valueOf(name);
-        } catch (IllegalArgumentException e) {
-            return null;
-        }
+    double budgetShare(int worldIndex) {
+        WorldProfile p = profile(worldIndex);
+        return p != null ? p.budgetShare : 1.0;
     }
 
-    // Helpers used by listeners
-    public boolean isWorldEnabled(World w) {
-        // If '*' present, or list empty, treat as all worlds enabled
-        if (enabledWorldNames.isEmpty() || enabledWorldNames.contains("*")) return true;
-        return enabledWorldNames.contains(w.getName());
+    private WorldProfile createProfile(int i, World w) {
+        if (i >= profiles.length) profiles = Arrays.copyOf(profiles, Math.max(i + 1, profiles.length * 2));
+        WorldProfile p = new WorldProfile(i, w.getName(), w.getSeed());
+        p.configure(settings);
+        profiles[i] = p;
+        if (p.rotates()) restaggerRotations();
+        p.palette = buildPalette(p, startupEpoch(p, w));
+        return p;
     }
 
     public boolean isAllowedReplacement(Material m) {
-        return replacementWhitelist.contains(m);
-    }
-
-    public Material pickRandomMaterial(Random r) {
-        if (replacementList.isEmpty()) return Material.STONE;
-        // Hard guard: never return WATER or LAVA even if somehow present
-        for (int attempts = 0; attempts < 10; attempts++) {
-            int idx = r.nextInt(replacementList.size());
-            Material pick = replacementList.get(idx);
-            if (pick != Material.WATER && pick != Material.LAVA) {
-                return pick;
-            }
-        }
-        return Material.STONE;
-    }
-
-    public boolean isExposedToAirOrLiquid(Chunk chunk, int x, int y, int z) {
-        // Only check neighbors within this chunk to avoid cross-chunk reads
-        // Always check UP and DOWN if in world bounds
-        if (withinWorldY(chunk.getWorld(), y + 1)) {
-            Material t = chunk.getBlock(x, y + 1, z).getType();
-            if (exposureNeighbors.contains(t)) return true;
-        }
-        if (withinWorldY(chunk.getWorld(), y - 1)) {
-            Material t = chunk.getBlock(x, y - 1, z).getType();
-            if (exposureNeighbors.contains(t)) return true;
-        }
-        // Lateral neighbors (only if within 0..15 bounds)
-        if (x + 1 <= 15) {
-            Material t = chunk.getBlock(x + 1, y, z).getType();
-            if (exposureNeighbors.contains(t)) return true;
-        }
-        if (x - 1 >= 0) {
-            Material t = chunk.getBlock(x - 1, y, z).getType();
-            if (exposureNeighbors.contains(t)) return true;
-        }
-        if (z + 1 <= 15) {
-            Material t = chunk.getBlock(x, y, z + 1).getType();
-            if (exposureNeighbors.contains(t)) return true;
-        }
-        if (z - 1 >= 0) {
-            Material t = chunk.getBlock(x, y, z - 1).getType();
-            if (exposureNeighbors.contains(t)) return true;
-        }
-        return false;
+        return settings.replacementWhitelist.contains(m);
     }
 
     private boolean withinWorldY(World w, int y) {
         return y >= w.getMinHeight() && y < w.getMaxHeight();
     }
 
-    public boolean isBlockEntityOrProtected(Block b) {
-        Material t = b.getType();
-        if (protectedSourceBlocks.contains(t)) return true;
-        // Never replace any door block as a source
-        String tn = t.name();
-        if (tn.endsWith("_DOOR")) return true;
-        // Do not replace flowers or grass (tall and small variants)
-        if (isFlowerOrGrass(t)) return true;
-        // Preserve common workstations even if not block entities
-        if (t == Material.LECTERN || t == Material.CRAFTING_TABLE || tn.equals("FLETCHING_TABLE")) return true;
-        // Config toggles: preserve natural chests/spawners
-        if (t == Material.SPAWNER && getConfig().getConfigurationSection("preserve-natural").getBoolean("spawners", true)) return true;
-        if ((t == Material.CHEST || t == Material.TRAPPED_CHEST || t == Material.ENDER_CHEST) && getConfig().getConfigurationSection("preserve-natural").getBoolean("chests", true)) return true;
-        return false;
-    }
-
     private static final EnumSet<Material> FLOWERS = EnumSet.of(
             // Small flowers (1.19.2)
             Material.DANDELION, Material.POPPY, Material.BLUE_ORCHID, Material.ALLIUM,
@@ -1344,7 +924,7 @@ public class BlockRandomizerReloaded extends JavaPlugin {
             Material.SUNFLOWER, Material.LILAC, Material.ROSE_BUSH, Material.PEONY
     );
 
-    private boolean isFlowerOrGrass(Material m) {
+    static boolean isFlowerOrGrass(Material m) {
         if (FLOWERS.contains(m)) return true;
         String n = m.name();
         if (n.equals("GRASS") || n.equals("TALL_GRASS") || n.equals("FERN") || n.equals("LARGE_FERN")) return true;
@@ -1353,128 +933,381 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     }
 
     public boolean shouldTriggerOnChunkLoad() {
-        return triggerOnChunkLoad;
+        return settings.triggerOnChunkLoad;
+    }
+
+    long chunkKey(Chunk chunk) {
+        return worldIndex.chunkKey(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    ChunkLedger getLedger() {
+        return ledger;
+    }
+
+    // Randomized with the current palette epoch already (per the chunk ledger)
+    public boolean isChunkCurrent(Chunk chunk) {
+        return ledger.isRandomized(chunk, chunkKey(chunk), profile(chunk.getWorld()).palette.epoch);
     }
 
-    // Task scheduling per chunk
-    public void queueChunk(Chunk chunk) {
+    // Task scheduling per chunk; player-triggered work goes ahead of background requeues
+    public void queueChunk(Chunk chunk, ChunkWorkScheduler.Lane lane) {
+        queueChunk(chunk, lane, null, true);
+    }
+
+    // randomize = false still runs the one-off stages (nether water) that apply to the chunk
+    public void queueChunk(Chunk chunk, ChunkWorkScheduler.Lane lane, boolean randomize) {
+        queueChunk(chunk, lane, null, randomize);
+    }
+
+    private void queueChunk(Chunk chunk, ChunkWorkScheduler.Lane lane, long[] columns, boolean randomize) {
         World world = chunk.getWorld();
-        if (!isWorldEnabled(world)) return;
+        WorldProfile profile = profile(world);
+        if (!profile.enabled) return;
+
+        long key = worldIndex.chunkKey(world, chunk.getX(), chunk.getZ());
+        if (chunkWork.contains(key) || pendingPlans.containsKey(key)) {
+            // already processing; just make sure player-triggered work is not stuck behind a requeue
+            if (lane == ChunkWorkScheduler.Lane.PLAYER) {
+                chunkWork.promote(key);
+                ChunkWork pending = pendingPlans.get(key);
+                if (pending != null) pending.lane = lane;
+            }
+            return;
+        }
 
+        // Every stage that applies plans from the same snapshot, off the main thread;
+        // only the merged writes come back to the tick.
+        ChunkTransform.Request request = new ChunkTransform.Request(randomize, columns, profile.palette);
+        ChunkTransform.Pass[] passes = pipeline.prepare(chunk, key, request);
+        int stages = ChunkPipeline.mask(passes);
+        if (stages == 0) return;
         int worldMin = world.getMinHeight();
-        int worldMax = world.getMaxHeight() - 1;
-        int yFrom;
-        World.Environment env = world.getEnvironment();
-        if (env == World.Environment.NETHER || env == World.Environment.THE_END) {
-            yFrom = Math.max(0, worldMin);
+        int worldMaxExclusive = world.getMaxHeight();
+        ChunkSnapshot snap = snapshot(world, key, chunk);
+        statChunksQueued++;
+        ChunkWork work = chunkWork.acquire();
+        work.init(key, lane, worldMin);
+        if (settings.ticketUnloadPolicy) work.ticketed = chunk.addPluginChunkTicket(this);
+        work.stages = stages;
+        work.epoch = request.palette.epoch;
+        work.wholeChunk = columns == null;
+        pendingPlans.put(key, work);
+        if (!settings.asyncPlanning) {
+            plan(work, snap, passes, world, worldMin, worldMaxExclusive);
+            applyPlan(work);
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            plan(work, snap, passes, world, worldMin, worldMaxExclusive);
+            if (!isEnabled()) return;
+            Bukkit.getScheduler().runTask(this, () -> applyPlan(work));
+        });
+    }
+
+    // Either thread. A plan that throws is dropped whole and the unit flagged, so applyPlan
+    // hands it back without marking anything; the chunk is tried again on its next trigger.
+    private void plan(ChunkWork work, ChunkSnapshot snap, ChunkTransform.Pass[] passes, World world,
+                      int worldMin, int worldMaxExclusive) {
+        try {
+            ChunkPipeline.plan(snap, passes, work.plan, worldMin, worldMaxExclusive);
+        } catch (Throwable t) {
+            getLogger().warning("BRR: planning failed for chunk " + world.getName() + " "
+                    + WorldIndex.chunkX(work.key) + "," + WorldIndex.chunkZ(work.key) + ": " + t);
+            work.plan.reset(worldMin);
+            work.failed = true;
+        }
+    }
+
+    private ChunkSnapshot snapshot(World world, long key, Chunk chunk) {
+        int tick = Bukkit.getCurrentTick();
+        if (tick != snapshotCacheTick) {
+            snapshotCache.clear();
+            snapshotCacheTick = tick;
+        }
+        ChunkSnapshot snap = snapshotCache.get(key);
+        if (snap == null) {
+            snap = chunk.getChunkSnapshot(true, false, false);
+            snapshotCache.put(key, snap);
+        }
+        return snap;
+    }
+
+    // Never loads the neighbor: an unloaded neighbor yields null and its edge gets deferred
+    ChunkSnapshot neighborSnapshot(World world, int cx, int cz) {
+        if (!world.isChunkLoaded(cx, cz)) return null;
+        return snapshot(world, worldIndex.chunkKey(world, cx, cz), world.getChunkAt(cx, cz));
+    }
+
+    // Called for every chunk load: finish edge columns of adjacent chunks that were
+    // waiting for this one
+    public void completeDeferredEdges(Chunk loaded) {
+        if (deferredEdges.isEmpty()) return;
+        World world = loaded.getWorld();
+        int cx = loaded.getX();
+        int cz = loaded.getZ();
+        completeDeferredEdges(world, cx, cz - 1);
+        completeDeferredEdges(world, cx, cz + 1);
+        completeDeferredEdges(world, cx + 1, cz);
+        completeDeferredEdges(world, cx - 1, cz);
+    }
+
+    // Queues the deferred columns whose bordering neighbors are all loaded, on the lane of
+    // the work that deferred them; the rest keep waiting
+    private void completeDeferredEdges(World world, int cx, int cz) {
+        long key = worldIndex.chunkKey(world, cx, cz);
+        DeferredEdges edges = deferredEdges.get(key);
+        if (edges == null) return;
+        if (!world.isChunkLoaded(cx, cz)) {
+            deferredEdges.remove(key);
+            return;
+        }
+        if (chunkWork.contains(key) || pendingPlans.containsKey(key)) return; // retried when that work is done
+        long[] ready = edges.columns.clone();
+        if (!world.isChunkLoaded(cx - 1, cz)) ChunkPlan.clearColumnsAtX(ready, 0);
+        if (!world.isChunkLoaded(cx + 1, cz)) ChunkPlan.clearColumnsAtX(ready, 15);
+        if (!world.isChunkLoaded(cx, cz - 1)) ChunkPlan.clearColumnsAtZ(ready, 0);
+        if (!world.isChunkLoaded(cx, cz + 1)) ChunkPlan.clearColumnsAtZ(ready, 15);
+        long waiting = 0L, any = 0L;
+        for (int i = 0; i < 4; i++) {
+            edges.columns[i] &= ~ready[i];
+            waiting |= edges.columns[i];
+            any |= ready[i];
+        }
+        if (waiting == 0L) deferredEdges.remove(key);
+        if (any != 0L) queueChunk(world.getChunkAt(cx, cz), edges.lane, ready, true);
+    }
+
+    public void forgetDeferredEdges(Chunk unloaded) {
+        if (deferredEdges.isEmpty()) return;
+        deferredEdges.remove(worldIndex.chunkKey(unloaded.getWorld(), unloaded.getX(), unloaded.getZ()));
+    }
+
+    // Main-thread half of queueChunk: hand the planned writes to the shared scheduler
+    private void applyPlan(ChunkWork work) {
+        if (pendingPlans.get(work.key) != work) return; // cancelled by disable
+        pendingPlans.remove(work.key);
+        if (work.failed) {
+            Chunk chunk = loadedChunk(work.key);
+            if (work.ticketed && chunk != null) chunk.removePluginChunkTicket(this);
+            requeueAgain(work);
+            chunkWork.release(work);
+            return;
+        }
+        if (work.plan.hasDeferred()) {
+            DeferredEdges waiting = deferredEdges.get(work.key);
+            if (waiting == null) {
+                waiting = new DeferredEdges(work.lane);
+                deferredEdges.put(work.key, waiting);
+            } else if (work.lane == ChunkWorkScheduler.Lane.PLAYER) {
+                waiting.lane = work.lane;
+            }
+            for (int i = 0; i < 4; i++) waiting.columns[i] |= work.plan.deferred[i];
+        }
+        boolean loaded = loadedChunk(work.key) != null;
+        if (!work.plan.isEmpty() && !loaded) {
+            park(work); // unloaded while planning
+            return;
+        }
+        // a whole-chunk pass starts a fresh log; edge follow-ups add to the current one
+        if (loaded && work.randomizes()) attachLog(work, work.wholeChunk);
+        upgradeIfStale(work); // the palette rotated while this chunk was being planned
+        if (work.plan.isEmpty()) {
+            onChunkWorkDone(work);
+            chunkWork.release(work);
+            return;
+        }
+        chunkWork.submit(work);
+    }
+
+    private void attachLog(ChunkWork work, boolean fresh) {
+        ChangeLog log = fresh ? null : changeLogs.get(work.key);
+        if (log == null) {
+            log = new ChangeLog();
+            changeLogs.put(work.key, log);
+        }
+        work.log = log;
+    }
+
+    // Work planned for an older epoch is moved to the current palette instead of finishing
+    // the old one: remaining writes are retargeted from their source, and what this unit
+    // already wrote is remapped from its change log like an incremental rotation would.
+    // Without that log the earlier writes stay on the old picks, and the unit is not allowed
+    // to mark the chunk current, so the next pass rescans it.
+    void upgradeIfStale(ChunkWork work) {
+        if (!work.randomizes()) return; // nothing that follows the palette
+        WorldProfile profile = profile(WorldIndex.worldOf(work.key));
+        if (profile == null) return;
+        PaletteTable pal = profile.palette;
+        if (work.epoch == pal.epoch) return;
+        MaterialFlags flags = settings.materialFlags;
+        work.plan.retarget(pal, flags);
+        World world = worldIndex.world(WorldIndex.worldOf(work.key));
+        if (world != null && work.wholeChunk && work.log != null && changeLogs.get(work.key) == work.log) {
+            ChangeLog next = new ChangeLog();
+            remapLog(work.log, work.plan, next, pal, flags, world);
+            changeLogs.put(work.key, next);
+            work.log = next;
         } else {
-            yFrom = Math.max(minY, worldMin);
-        }
-        int yTo = Math.min(maxY, worldMax);
-        if (yFrom > yTo) return;
-
-        String key = chunkKey(chunk);
-        if (activeChunkTasks.containsKey(key)) return; // already processing
-
-        // Build queue of positions (surface-optimized):
-        // For each (x,z) column, target only the top exposed block (and let
-        // applyChainAt handle underDepth expansion). This avoids iterating every Y.
-        ArrayDeque<int[]> queue = new ArrayDeque<>();
-        World worldRef = chunk.getWorld();
-        int baseX = chunk.getX() << 4;
-        int baseZ = chunk.getZ() << 4;
-        for (int x = 0; x < 16; x++) {
-            int worldX = baseX + x;
-            for (int z = 0; z < 16; z++) {
-                int worldZ = baseZ + z;
-                int topY = worldRef.getHighestBlockYAt(worldX, worldZ);
-                // clamp to configured bounds
-                int y = Math.min(yTo, topY);
-                if (y < yFrom) continue;
-                queue.add(new int[]{x, y, z});
+            work.staleWrites = true;
+        }
+        work.epoch = pal.epoch;
+    }
+
+    // Newest entry first, so a position rewritten twice is only taken once. Positions with
+    // a new pick go into plan; the rest are carried over into next unchanged.
+    private void remapLog(ChangeLog log, ChunkPlan plan, ChangeLog next, PaletteTable pal, MaterialFlags flags, World world) {
+        int words = ((world.getMaxHeight() - world.getMinHeight()) << 8) >>> 6;
+        if (seenScratch.length < words) seenScratch = new long[words];
+        else Arrays.fill(seenScratch, 0, words, 0L);
+        for (int i = log.size() - 1; i >= 0; i--) {
+            int p = log.position(i);
+            long bit = 1L << (p & 63);
+            if ((seenScratch[p >>> 6] & bit) != 0L) continue;
+            seenScratch[p >>> 6] |= bit;
+            Material now = log.material(i);
+            Material pick = flags.has(now, MaterialFlags.NOT_SOURCE) ? null : pal.block(now);
+            if (pick == null) {
+                next.add(p, now); // stays as it is, but is still ours
+            } else {
+                plan.addPacked(p, now, pick);
             }
         }
+    }
 
+    // Rotation fast path: remap only the positions the chunk's change log knows about,
+    // from what is there now to the current palette's pick for it. Falls back (false) to
+    // a full rescan when the log does not cover the whole chunk.
+    private boolean queueIncremental(Chunk chunk) {
+        long key = chunkKey(chunk);
+        ChangeLog log = changeLogs.get(key);
+        if (log == null || !log.complete) return false;
+        if (chunkWork.contains(key) || pendingPlans.containsKey(key)) return false;
+        World world = chunk.getWorld();
+        PaletteTable pal = profile(world).palette;
+        ChunkWork work = chunkWork.acquire();
+        work.init(key, ChunkWorkScheduler.Lane.BACKGROUND, world.getMinHeight());
+        work.epoch = pal.epoch;
+        work.wholeChunk = true;
+        work.stages = 1 << SurfaceTransform.STAGE;
+        ChangeLog next = new ChangeLog();
+        remapLog(log, work.plan, next, pal, settings.materialFlags, world);
+        changeLogs.put(key, next);
+        work.log = next;
         statChunksQueued++;
-        long nanosBudget = (long) (tickBudgetMs * 1_000_000.0);
-        final int maxOpsPerTick = 200;
-        final Set<Long> touched = new HashSet<>();
-        BukkitTask task = Bukkit.getScheduler().runTaskTimer(this, () -> {
-            long start = System.nanoTime();
-            int ops = 0;
-            while (!queue.isEmpty()) {
-                int[] p = queue.pollFirst();
-                int lx = p[0], y = p[1], lz = p[2];
-                Block b = chunk.getBlock(lx, y, lz);
-                Material src = b.getType();
-                // Never replace AIR or liquids as source
-                if (src.isAir() || src == Material.WATER || src == Material.LAVA) {
-                    // skip
-                } else {
-                    boolean isPlantTop = isFlowerOrGrass(src);
-                    if (isPlantTop) {
-                        int anchorY = y - 1;
-                        if (withinWorldY(chunk.getWorld(), anchorY)) {
-                            applyChainAt(chunk, lx, anchorY, lz, touched);
-                        }
-                    } else if (isExposedToAirOrLiquid(chunk, lx, y, lz)) {
-                        applyChainAt(chunk, lx, y, lz, touched);
-                    }
-                }
+        if (work.plan.isEmpty()) {
+            onChunkWorkDone(work);
+            chunkWork.release(work);
+            return true;
+        }
+        if (settings.ticketUnloadPolicy) work.ticketed = chunk.addPluginChunkTicket(this);
+        chunkWork.submit(work);
+        return true;
+    }
 
-                ops++;
-                if (ops >= maxOpsPerTick) break;
-                if ((System.nanoTime() - start) >= nanosBudget) break;
-            }
-            if (queue.isEmpty()) {
-                BukkitTask t = activeChunkTasks.remove(key);
-                if (t != null) t.cancel();
-                statTasksCompleted++;
+    // Called before the unit goes back to the pool
+    void onChunkWorkDone(ChunkWork work) {
+        statTasksCompleted++;
+        Chunk chunk = loadedChunk(work.key);
+        if (work.wholeChunk && chunk != null) {
+            // one-off stages are marked only when they ran to the end on a loaded chunk;
+            // otherwise the next load runs them again
+            for (int i = 0; i < pipeline.size(); i++) {
+                int bit = pipeline.ledgerBit(i);
+                if (bit != 0 && (work.stages & (1 << i)) != 0) ledger.markTransform(work.key, bit);
             }
-        }, 1L, 1L);
+        }
+        if (work.wholeChunk && chunk != null && work.randomizes() && !work.staleWrites) {
+            ledger.markRandomized(work.key, work.epoch);
+            // the log still covers everything only if the chunk never unloaded in between
+            if (work.log != null && changeLogs.get(work.key) == work.log) work.log.complete = true;
+        } else {
+            requeueAgain(work);
+        }
+        if (work.ticketed && chunk != null) chunk.removePluginChunkTicket(this);
+        // edge columns this chunk deferred while its neighbors were already loaded
+        if (chunk != null && !deferredEdges.isEmpty()) {
+            completeDeferredEdges(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        }
+    }
+
+    // The chunk for a key if it is loaded; never loads it
+    Chunk loadedChunk(long key) {
+        World w = worldIndex.world(WorldIndex.worldOf(key));
+        if (w == null) return null;
+        int cx = WorldIndex.chunkX(key);
+        int cz = WorldIndex.chunkZ(key);
+        return w.isChunkLoaded(cx, cz) ? w.getChunkAt(cx, cz) : null;
+    }
 
-        activeChunkTasks.put(key, task);
+    // Block place/break/explosion: the periodic sweep should look at this chunk again
+    public void markChunkDirty(Block changed) {
+        if (settings.periodicSeconds <= 0) return;
+        periodicSweep.markDirty(worldIndex.chunkKey(changed.getWorld(), changed.getX() >> 4, changed.getZ() >> 4));
     }
 
-    private String chunkKey(Chunk c) {
-        return c.getWorld().getName() + ":" + c.getX() + ":" + c.getZ();
+    // ChunkUnloadEvent: move unfinished writes off the scheduler, keyed by coordinates
+    public void parkChunkWork(Chunk unloading) {
+        changeLogs.remove(chunkKey(unloading));
+        periodicSweep.forget(chunkKey(unloading));
+        ChunkWork work = chunkWork.remove(chunkKey(unloading));
+        if (work != null) park(work);
     }
 
-    private void applyChainAt(Chunk chunk, int x, int y, int z, Set<Long> touched) {
-        World w = chunk.getWorld();
-        int minFloor = Math.max(w.getMinHeight(), underMinY);
-        int maxCeil = w.getMaxHeight() - 1;
-        // base
-        processAt(chunk, x, y, z, touched);
-        // extend 6 directions up to underDepth
-        for (int d = 1; d <= underDepth; d++) {
-            if (y + d <= maxCeil) processAt(chunk, x, y + d, z, touched);
-            if (y - d >= minFloor) processAt(chunk, x, y - d, z, touched);
-            if (x + d <= 15) processAt(chunk, x + d, y, z, touched);
-            if (x - d >= 0) processAt(chunk, x - d, y, z, touched);
-            if (z + d <= 15) processAt(chunk, x, y, z + d, touched);
-            if (z - d >= 0) processAt(chunk, x, y, z - d, touched);
+    private void park(ChunkWork work) {
+        requeueAgain(work);
+        if (parkedWork.size() >= MAX_PARKED) {
+            // the ledger was not marked, so the next load plans the chunk from scratch
+            chunkWork.release(work);
+            return;
         }
+        ChunkWork old = parkedWork.get(work.key);
+        if (old != null) chunkWork.release(old);
+        parkedWork.put(work.key, work);
+    }
+
+    // ChunkLoadEvent: continue where the chunk left off; true if there was parked work
+    public boolean resumeParkedWork(Chunk loaded) {
+        if (parkedWork.isEmpty()) return false;
+        long key = chunkKey(loaded);
+        ChunkWork work = parkedWork.get(key);
+        if (work == null) return false;
+        parkedWork.remove(key);
+        if (chunkWork.contains(key) || pendingPlans.containsKey(key)) {
+            chunkWork.release(work);
+            return true;
+        }
+        work.lane = ChunkWorkScheduler.Lane.PLAYER;
+        if (work.randomizes()) attachLog(work, false);
+        chunkWork.submit(work);
+        return true;
+    }
+
+    public void flushLedger(Chunk unloading) {
+        ledger.flush(unloading, chunkKey(unloading));
     }
 
-    private void processAt(Chunk chunk, int x, int y, int z, Set<Long> touched) {
-        World w = chunk.getWorld();
-        if (!withinWorldY(w, y)) return;
-        Material current = chunk.getBlock(x, y, z).getType();
-        long key = (((long) y) << 8) | ((long) (x & 0xF) << 4) | (long) (z & 0xF);
-        if (touched.contains(key)) return;
-        if (current.isAir() || current == Material.WATER || current == Material.LAVA) return;
+    public void flushLedger(World saving) {
+        ledger.flush(saving);
+    }
+
+    TickBudget getTickBudget() {
+        return tickBudget;
+    }
+
+    // Returns true if the block still held source and was rewritten
+    boolean writeReplacement(Chunk chunk, int x, int y, int z, Material source, Material pick) {
         Block target = chunk.getBlock(x, y, z);
-        if (isBlockEntityOrProtected(target)) return;
-        Material pick = getPaletteReplacement(current);
-        if (isAllowedReplacement(pick) && pick != current) {
-            target.setType(pick, false);
-            statBlocksChanged++;
-            touched.add(key);
-            if (logChangedBlocks) {
-                getLogger().info("Changed block at " + target.getLocation() + " -> " + pick);
-            }
+        // the world may have moved on since the snapshot; only rewrite what was planned
+        if (target.getType() != source) return false;
+        target.setBlockData(blockData.get(pick), false);
+        if (settings.logChangedBlocks) {
+            getLogger().info("Changed block at " + target.getLocation() + " -> " + pick);
         }
+        return true;
+    }
+
+    void countChangedBlocks(int n) {
+        statBlocksChanged += n;
     }
 
     // Simple inline command handler to avoid extra boilerplate file
@@ -1482,7 +1315,7 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!command.getName().equalsIgnoreCase("brr")) return false;
         if (args.length == 0) {
-            sender.sendMessage("/brr reload | stats | here | rotate | sound [player] | ghost [player] | teleport [player] | handswap [player] | hunger [player] | message");
+            sender.sendMessage("/brr reload | stats | here | rotate [world] | sound [player] | ghost [player] | teleport [player] | handswap [player] | hunger [player] | message");
             return true;
         }
         String sub = args[0].toLowerCase();
@@ -1491,11 +1324,10 @@ public class BlockRandomizerReloaded extends JavaPlugin {
                 sender.sendMessage("You don't have permission.");
                 return true;
             }
-            reloadConfigAndRebuildWhitelist();
-            sender.sendMessage("BRR: config reloaded. Whitelist size=" + replacementWhitelist.size());
+            reloadSettingsAsync(sender);
             return true;
         } else if (sub.equals("stats")) {
-            sender.sendMessage("BRR stats: changed=" + statBlocksChanged + ", chunksQueued=" + statChunksQueued + ", tasksCompleted=" + statTasksCompleted + ", whitelist=" + replacementWhitelist.size());
+            sender.sendMessage("BRR stats: changed=" + statBlocksChanged + ", chunksQueued=" + statChunksQueued + ", planning=" + pendingPlans.size() + ", active=" + chunkWork.size() + ", parked=" + parkedWork.size() + ", deferredEdges=" + deferredEdges.size() + ", ledgerPending=" + ledger.pendingSize() + ", requeueReady=" + requeueQueue.size() + ", tasksCompleted=" + statTasksCompleted + ", whitelist=" + settings.replacementWhitelist.size());
             return true;
         } else if (sub.equals("here")) {
             if (!(sender instanceof Player)) {
@@ -1507,7 +1339,7 @@ public class BlockRandomizerReloaded extends JavaPlugin {
                 return true;
             }
             Player p = (Player) sender;
-            queueChunk(p.getLocation().getChunk());
+            queueChunk(p.getLocation().getChunk(), ChunkWorkScheduler.Lane.PLAYER);
             sender.sendMessage("BRR: queued current chunk for randomization.");
             return true;
         } else if (sub.equals("rotate")) {
@@ -1515,8 +1347,25 @@ public class BlockRandomizerReloaded extends JavaPlugin {
                 sender.sendMessage("You don't have permission.");
                 return true;
             }
-            rotatePalette();
-            sender.sendMessage("BRR: palette rotated. Epoch=" + paletteEpoch);
+            // /brr rotate [world]: one world, or every enabled loaded world
+            List<World> targets = new ArrayList<>();
+            if (args.length > 1) {
+                World w = Bukkit.getWorld(args[1]);
+                if (w == null || !isWorldEnabled(w)) {
+                    sender.sendMessage("BRR: no enabled world named " + args[1]);
+                    return true;
+                }
+                targets.add(w);
+            } else {
+                for (World w : Bukkit.getWorlds()) {
+                    if (isWorldEnabled(w)) targets.add(w);
+                }
+            }
+            for (World w : targets) {
+                WorldProfile p = profile(w);
+                rotatePalette(p, w, p.palette.epoch + 1);
+                sender.sendMessage("BRR: palette rotated in " + w.getName() + ". Epoch=" + p.palette.epoch);
+            }
             return true;
         } else if (sub.equals("sound")) {
             if (!sender.hasPermission("brr.admin")) { sender.sendMessage("You don't have permission."); return true; }
@@ -1529,7 +1378,7 @@ public class BlockRandomizerReloaded extends JavaPlugin {
             if (!sender.hasPermission("brr.admin")) { sender.sendMessage("You don't have permission."); return true; }
             Player target = resolveTargetPlayer(sender, args, 1);
             if (target == null) { sender.sendMessage("Usage: /brr ghost [player]"); return true; }
-            insertGhostItems(target, Math.max(1, ghostPerEventMin));
+            insertGhostItems(target, Math.max(1, settings.ghostPerEventMin));
             sender.sendMessage("Inserted ghost item(s) into " + target.getName() + "'s inventory");
             return true;
         } else if (sub.equals("teleport")) {
@@ -1577,9 +1426,9 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     }
 
     private void triggerRandomSound(Player p) {
-        if (!soundsEnabled || prankSounds.isEmpty()) return;
-        if (!isWorldEnabled(p.getWorld())) return;
-        Sound snd = prankSounds.get(rng.nextInt(prankSounds.size()));
+        if (!settings.soundsEnabled || settings.prankSounds.isEmpty()) return;
+        if (!profile(p.getWorld()).pranks) return;
+        Sound snd = settings.prankSounds.get(rng.nextInt(settings.prankSounds.size()));
         Location base = p.getLocation();
         double dx = (rng.nextDouble() * 10.0) - 5.0;
         double dz = (rng.nextDouble() * 10.0) - 5.0;
@@ -1588,14 +1437,14 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     }
 
     private void insertGhostItems(Player p, int count) {
-        if (!ghostItemsEnabled) return;
-        if (!isWorldEnabled(p.getWorld())) return;
+        if (!settings.ghostItemsEnabled) return;
+        if (!profile(p.getWorld()).pranks) return;
         for (int i = 0; i < count; i++) {
             int slot = pickRandomEmptyInventorySlot(p);
             if (slot < 0) break;
             org.bukkit.inventory.ItemStack ghost = makeGhostItem();
             p.getInventory().setItem(slot, ghost);
-            long removeDelay = Math.max(20L, ghostDurationSeconds * 20L);
+            long removeDelay = Math.max(20L, settings.ghostDurationSeconds * 20L);
             Bukkit.getScheduler().runTaskLater(this, () -> {
                 org.bukkit.inventory.ItemStack cur = p.getInventory().getItem(slot);
                 if (cur != null && isGhostItem(cur)) {
@@ -1606,9 +1455,9 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     }
 
     private void randomTeleportPlayer(Player p) {
-        if (!teleportEnabled) return;
-        if (!isWorldEnabled(p.getWorld())) return;
-        Location dest = findSafeTeleportNear(p, tpMinDistance, tpMaxDistance);
+        if (!settings.teleportEnabled) return;
+        if (!profile(p.getWorld()).pranks) return;
+        Location dest = findSafeTeleportNear(p, settings.tpMinDistance, settings.tpMaxDistance);
         if (dest != null) {
             dest.setYaw((float) rng.nextInt(360));
             dest.setPitch(p.getLocation().getPitch());
@@ -1617,8 +1466,8 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     }
 
     private void handSwapOnce(Player p) {
-        if (!handSwapEnabled) return;
-        if (!isWorldEnabled(p.getWorld())) return;
+        if (!settings.handSwapEnabled) return;
+        if (!profile(p.getWorld()).pranks) return;
         org.bukkit.inventory.PlayerInventory inv = p.getInventory();
         org.bukkit.inventory.ItemStack main = inv.getItemInMainHand();
         org.bukkit.inventory.ItemStack off = inv.getItemInOffHand();
@@ -1627,16 +1476,16 @@ public class BlockRandomizerReloaded extends JavaPlugin {
     }
 
     private void hungerJumpOnce(Player p) {
-        if (!hungerEnabled) return;
-        if (!isWorldEnabled(p.getWorld())) return;
-        int delta = hungerMinDelta + rng.nextInt(Math.max(1, hungerMaxDelta - hungerMinDelta + 1));
+        if (!settings.hungerEnabled) return;
+        if (!profile(p.getWorld()).pranks) return;
+        int delta = settings.hungerMinDelta + rng.nextInt(Math.max(1, settings.hungerMaxDelta - settings.hungerMinDelta + 1));
         int newFood = Math.max(0, Math.min(20, p.getFoodLevel() + delta));
         p.setFoodLevel(newFood);
     }
 
     private void broadcastRandomFakeMessage() {
-        if (!fakeMessagesEnabled || fakeMessages.isEmpty()) return;
-        String msg = fakeMessages.get(rng.nextInt(fakeMessages.size()));
+        if (!settings.fakeMessagesEnabled || settings.fakeMessages.isEmpty()) return;
+        String msg = settings.fakeMessages.get(rng.nextInt(settings.fakeMessages.size()));
         Bukkit.broadcastMessage(msg);
     }
 }
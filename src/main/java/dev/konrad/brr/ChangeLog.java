@@ -0,0 +1,35 @@
+package dev.konrad.brr;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+
+// Positions this plugin rewrote in one loaded chunk and what it wrote there, so a palette
+// rotation can remap exactly those blocks instead of rescanning the chunk. Entries are
+// (material ordinal << 32) | packed ChunkPlan position; later entries win for a position.
+// complete is set once a whole-chunk pass has finished into this log, meaning it covers
+// every change to the chunk. Logs are dropped when their chunk unloads. Main thread only.
+final class ChangeLog {
+    private static final Material[] MATERIALS = Material.values();
+
+    private long[] entries = new long[64];
+    private int size;
+    boolean complete;
+
+    void add(int packedPosition, Material now) {
+        if (size == entries.length) entries = Arrays.copyOf(entries, size * 2);
+        entries[size++] = ((long) now.ordinal() << 32) | (packedPosition & 0xFFFFFFFFL);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int position(int i) {
+        return (int) entries[i];
+    }
+
+    Material material(int i) {
+        return MATERIALS[(int) (entries[i] >>> 32)];
+    }
+}
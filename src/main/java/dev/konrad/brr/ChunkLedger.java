@@ -0,0 +1,112 @@
+package dev.konrad.brr;
+
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+// What has already been done to a chunk, stored in the chunk's PersistentDataContainer:
+// the palette epoch it was last randomized with and a bit per epoch-independent transform.
+// Marks are kept in memory and written to the chunk when its world saves or it unloads,
+// so repeated loads of the same chunk can be skipped without touching the PDC each time.
+// The stored epoch is also remembered once read, until the chunk unloads, so the requeue
+// walks ask memory rather than the PDC. Main thread only.
+final class ChunkLedger {
+    static final int NETHER_WATER = 1;
+
+    private final NamespacedKey epochKey;
+    private final NamespacedKey transformsKey;
+    private final WorldIndex worldIndex;
+    // chunk key -> (epoch + 1) << 32 | transforms; a high half of 0 means no epoch mark yet
+    private final LongLongMap pending = new LongLongMap();
+    // chunk key -> epoch + 1 read from a loaded chunk's PDC; 0 means it had none
+    private final LongLongMap stored = new LongLongMap();
+
+    ChunkLedger(BlockRandomizerReloaded plugin, WorldIndex worldIndex) {
+        this.epochKey = new NamespacedKey(plugin, "epoch");
+        this.transformsKey = new NamespacedKey(plugin, "transforms");
+        this.worldIndex = worldIndex;
+    }
+
+    boolean isRandomized(Chunk chunk, long key, int epoch) {
+        long p = pending.get(key, 0L);
+        if ((p >>> 32) != 0L) return (int) (p >>> 32) - 1 == epoch;
+        long s = stored.get(key, -1L);
+        if (s < 0L) {
+            Integer read = chunk.getPersistentDataContainer().get(epochKey, PersistentDataType.INTEGER);
+            s = read != null ? read + 1L : 0L;
+            stored.put(key, s);
+        }
+        return s - 1L == epoch;
+    }
+
+    boolean hasTransform(Chunk chunk, long key, int transform) {
+        if (((int) pending.get(key, 0L) & transform) != 0) return true;
+        Byte stored = chunk.getPersistentDataContainer().get(transformsKey, PersistentDataType.BYTE);
+        return stored != null && (stored & transform) != 0;
+    }
+
+    void markRandomized(long key, int epoch) {
+        long p = pending.get(key, 0L);
+        pending.put(key, ((long) (epoch + 1) << 32) | (p & 0xFFFFFFFFL));
+    }
+
+    void markTransform(long key, int transform) {
+        pending.put(key, pending.get(key, 0L) | (transform & 0xFFFFFFFFL));
+    }
+
+    // Chunk is about to unload: its PDC is saved with it
+    void flush(Chunk chunk, long key) {
+        stored.remove(key);
+        long p = pending.get(key, 0L);
+        if (p == 0L) return;
+        pending.remove(key);
+        write(chunk, p);
+    }
+
+    // World is about to save: write every pending mark of that world's loaded chunks
+    void flush(World world) {
+        if (pending.size() == 0) return;
+        int index = worldIndex.indexOf(world);
+        LongLongMap keep = new LongLongMap();
+        pending.forEach((key, p) -> {
+            int cx = WorldIndex.chunkX(key);
+            int cz = WorldIndex.chunkZ(key);
+            if (WorldIndex.worldOf(key) != index) {
+                keep.put(key, p);
+            } else if (world.isChunkLoaded(cx, cz)) {
+                write(world.getChunkAt(cx, cz), p);
+                if ((p >>> 32) != 0L) stored.put(key, p >>> 32);
+            }
+        });
+        pending.clear();
+        keep.forEach(pending::put);
+    }
+
+    // Plugin disable: chunks are saved after plugins are gone, so write everything now
+    void flushAll() {
+        pending.forEach((key, p) -> {
+            World w = worldIndex.world(WorldIndex.worldOf(key));
+            int cx = WorldIndex.chunkX(key);
+            int cz = WorldIndex.chunkZ(key);
+            if (w != null && w.isChunkLoaded(cx, cz)) write(w.getChunkAt(cx, cz), p);
+        });
+        pending.clear();
+        stored.clear();
+    }
+
+    int pendingSize() {
+        return pending.size();
+    }
+
+    private void write(Chunk chunk, long p) {
+        PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        if ((p >>> 32) != 0L) pdc.set(epochKey, PersistentDataType.INTEGER, (int) (p >>> 32) - 1);
+        int transforms = (int) p;
+        if (transforms != 0) {
+            Byte stored = pdc.get(transformsKey, PersistentDataType.BYTE);
+            pdc.set(transformsKey, PersistentDataType.BYTE, (byte) ((stored != null ? stored : 0) | transforms));
+        }
+    }
+}
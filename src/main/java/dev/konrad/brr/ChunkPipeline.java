@@ -0,0 +1,75 @@
+package dev.konrad.brr;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.block.data.BlockData;
+
+// The registered ChunkTransform stages, in the order their writes are applied. Stage
+// indexes tag plan entries (ChunkPlan.stage) and ChunkWork.stages; the palette stage is
+// always index 0 (SurfaceTransform.STAGE).
+final class ChunkPipeline {
+    private final ChunkTransform[] stages;
+
+    ChunkPipeline(ChunkTransform... stages) {
+        if (stages.length > 31) throw new IllegalArgumentException("too many chunk transforms");
+        this.stages = stages.clone();
+    }
+
+    int size() {
+        return stages.length;
+    }
+
+    int ledgerBit(int stage) {
+        return stages[stage].ledgerBit();
+    }
+
+    // Main thread. One pass per applicable stage, null for the rest
+    ChunkTransform.Pass[] prepare(Chunk chunk, long key, ChunkTransform.Request request) {
+        ChunkTransform.Pass[] passes = new ChunkTransform.Pass[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            passes[i] = stages[i].prepare(chunk, key, request);
+        }
+        return passes;
+    }
+
+    // Bit (1 << stage) per prepared pass; 0 when no stage has anything to do
+    static int mask(ChunkTransform.Pass[] passes) {
+        int mask = 0;
+        for (int i = 0; i < passes.length; i++) {
+            if (passes[i] != null) mask |= 1 << i;
+        }
+        return mask;
+    }
+
+    // Worker thread. Section emptiness is read once for all passes, and passes whose
+    // states or sections are not in the chunk never look at a block.
+    static void plan(ChunkSnapshot snap, ChunkTransform.Pass[] passes, ChunkPlan out, int worldMin, int worldMaxExclusive) {
+        boolean[] empty = new boolean[(worldMaxExclusive - worldMin) >> 4];
+        for (int s = 0; s < empty.length; s++) empty[s] = snap.isSectionEmpty(s);
+        for (int i = 0; i < passes.length; i++) {
+            ChunkTransform.Pass pass = passes[i];
+            if (pass == null || !inSections(pass, empty, worldMin) || !inPalettes(pass, snap)) continue;
+            out.stage = (byte) i;
+            pass.plan(snap, empty, out);
+        }
+        out.stage = 0;
+    }
+
+    private static boolean inSections(ChunkTransform.Pass pass, boolean[] empty, int worldMin) {
+        int from = Math.max(0, (pass.fromY() - worldMin) >> 4);
+        int to = Math.min(empty.length - 1, (pass.toY() - worldMin) >> 4);
+        for (int s = from; s <= to; s++) {
+            if (!empty[s]) return true;
+        }
+        return false;
+    }
+
+    private static boolean inPalettes(ChunkTransform.Pass pass, ChunkSnapshot snap) {
+        BlockData[] states = pass.states();
+        if (states == null) return true;
+        for (BlockData state : states) {
+            if (snap.contains(state)) return true;
+        }
+        return false;
+    }
+}
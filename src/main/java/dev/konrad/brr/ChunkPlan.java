@@ -0,0 +1,169 @@
+package dev.konrad.brr;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+
+// Result of planning one chunk: the positions to rewrite, the material that was
+// there when the snapshot was taken, its replacement and the ChunkPipeline stage that
+// planned it. Built off-thread, applied on the main thread.
+// Positions are packed ints ((y - minY) << 8 | z << 4 | x) in a ring buffer that is
+// reused when the owning ChunkWork goes back to the pool.
+final class ChunkPlan {
+    private int[] positions = new int[256];
+    private Material[] sources = new Material[256];
+    private Material[] targets = new Material[256];
+    private byte[] stages = new byte[256];
+    private int head = 0;
+    private int tail = 0;
+    int minY;
+    byte stage; // tag for entries added from here on; left at the palette stage outside the pipeline
+    final ExposureKernel kernel = new ExposureKernel(); // planner scratch, reused with the plan
+    final long[] deferred = new long[4]; // columns waiting for a neighbor chunk, bit (x << 4) | z
+
+    void reset(int minY) {
+        // do not pin materials from the previous chunk
+        Arrays.fill(sources, null);
+        Arrays.fill(targets, null);
+        head = 0;
+        tail = 0;
+        stage = SurfaceTransform.STAGE;
+        this.minY = minY;
+        Arrays.fill(deferred, 0L);
+    }
+
+    void deferColumn(int x, int z) {
+        int bit = (x << 4) | z;
+        deferred[bit >>> 6] |= 1L << (bit & 63);
+    }
+
+    boolean hasDeferred() {
+        return (deferred[0] | deferred[1] | deferred[2] | deferred[3]) != 0L;
+    }
+
+    static boolean hasColumn(long[] columns, int x, int z) {
+        int bit = (x << 4) | z;
+        return (columns[bit >>> 6] & (1L << (bit & 63))) != 0L;
+    }
+
+    // Column sets by row: x picks 16 consecutive bits of one word, z one bit in each 16
+    static boolean hasColumnAtX(long[] columns, int x) {
+        return (columns[x >> 2] & (0xFFFFL << ((x & 3) << 4))) != 0L;
+    }
+
+    static boolean hasColumnAtZ(long[] columns, int z) {
+        return ((columns[0] | columns[1] | columns[2] | columns[3]) & (0x0001000100010001L << z)) != 0L;
+    }
+
+    static void clearColumnsAtX(long[] columns, int x) {
+        columns[x >> 2] &= ~(0xFFFFL << ((x & 3) << 4));
+    }
+
+    static void clearColumnsAtZ(long[] columns, int z) {
+        for (int i = 0; i < 4; i++) columns[i] &= ~(0x0001000100010001L << z);
+    }
+
+    void add(int x, int y, int z, Material source, Material target) {
+        addPacked(((y - minY) << 8) | (z << 4) | x, source, target);
+    }
+
+    void addPacked(int packed, Material source, Material target) {
+        if (tail - head == positions.length) grow();
+        int i = tail++ & (positions.length - 1);
+        positions[i] = packed;
+        sources[i] = source;
+        targets[i] = target;
+        stages[i] = stage;
+    }
+
+    // Points every remaining palette-stage entry at the palette's current pick for its
+    // source; those whose source no longer maps to anything are dropped. Entries of other
+    // stages are kept as they are.
+    void retarget(PaletteTable palette, MaterialFlags flags) {
+        int mask = positions.length - 1;
+        int w = head;
+        for (int r = head; r != tail; r++) {
+            int i = r & mask;
+            Material source = sources[i];
+            Material target = targets[i];
+            if (stages[i] == SurfaceTransform.STAGE) {
+                target = flags.has(source, MaterialFlags.NOT_SOURCE) ? null : palette.block(source);
+                if (target == null) continue;
+            }
+            int j = w++ & mask;
+            positions[j] = positions[i];
+            sources[j] = source;
+            targets[j] = target;
+            stages[j] = stages[i];
+        }
+        for (int r = w; r != tail; r++) {
+            sources[r & mask] = null;
+            targets[r & mask] = null;
+        }
+        tail = w;
+    }
+
+    int size() {
+        return tail - head;
+    }
+
+    boolean isEmpty() {
+        return tail == head;
+    }
+
+    // Head entry accessors; read them, then poll() to advance
+    int peekPosition() {
+        return positions[head & (positions.length - 1)];
+    }
+
+    Material peekSource() {
+        return sources[head & (positions.length - 1)];
+    }
+
+    Material peekTarget() {
+        return targets[head & (positions.length - 1)];
+    }
+
+    byte peekStage() {
+        return stages[head & (positions.length - 1)];
+    }
+
+    void poll() {
+        int i = head++ & (positions.length - 1);
+        sources[i] = null;
+        targets[i] = null;
+    }
+
+    static int x(int packed) {
+        return packed & 15;
+    }
+
+    static int z(int packed) {
+        return (packed >> 4) & 15;
+    }
+
+    int y(int packed) {
+        return (packed >>> 8) + minY;
+    }
+
+    private void grow() {
+        int n = positions.length;
+        int[] p = new int[n * 2];
+        Material[] s = new Material[n * 2];
+        Material[] t = new Material[n * 2];
+        byte[] g = new byte[n * 2];
+        for (int k = 0; k < n; k++) {
+            int i = (head + k) & (n - 1);
+            p[k] = positions[i];
+            s[k] = sources[i];
+            t[k] = targets[i];
+            g[k] = stages[i];
+        }
+        positions = p;
+        sources = s;
+        targets = t;
+        stages = g;
+        tail = n;
+        head = 0;
+    }
+}
@@ -0,0 +1,212 @@
+package dev.konrad.brr;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Arrays;
+
+// Decides which blocks of a chunk get randomized, reading only a ChunkSnapshot and
+// settings copied on the main thread, so plan() can run on a worker thread.
+// The pass of SurfaceTransform; single use.
+final class ChunkPlanner implements ChunkTransform.Pass {
+    private ChunkSnapshot snap;
+    private boolean[] emptySections;
+    private final PaletteTable palette;
+    private final MaterialFlags flags;
+    private final int worldMin;
+    private final int worldMaxExclusive;
+    private final int yFrom;
+    private final int yTo;
+    private final int underDepth;
+    private final int underFloor;
+    // Lateral neighbors (null when not loaded or not needed) and an optional column filter
+    private ChunkSnapshot north, south, east, west;
+    private long[] columns;
+
+    ChunkPlanner(PaletteTable palette, MaterialFlags flags, int worldMin, int worldMaxExclusive,
+                 int yFrom, int yTo, int underDepth, int underMinY) {
+        this.palette = palette;
+        this.flags = flags;
+        this.worldMin = worldMin;
+        this.worldMaxExclusive = worldMaxExclusive;
+        this.yFrom = yFrom;
+        this.yTo = yTo;
+        this.underDepth = underDepth;
+        this.underFloor = Math.max(worldMin, underMinY);
+    }
+
+    ChunkPlanner neighbors(ChunkSnapshot north, ChunkSnapshot south, ChunkSnapshot east, ChunkSnapshot west) {
+        this.north = north;
+        this.south = south;
+        this.east = east;
+        this.west = west;
+        return this;
+    }
+
+    // Restrict planning to the given columns (bit (x << 4) | z); used to finish deferred edges
+    ChunkPlanner onlyColumns(long[] columns) {
+        this.columns = columns;
+        return this;
+    }
+
+    @Override
+    public BlockData[] states() {
+        return null; // any block can have a pick
+    }
+
+    // Surface blocks are searched in this range; the under-depth may reach below it
+    @Override
+    public int fromY() {
+        return yFrom;
+    }
+
+    @Override
+    public int toY() {
+        return yTo;
+    }
+
+    // Adds to out, which has been reset for this chunk. Edge columns whose exposure
+    // depends on a neighbor that was not given are left out and flagged in out.
+    @Override
+    public void plan(ChunkSnapshot snap, boolean[] emptySections, ChunkPlan out) {
+        this.snap = snap;
+        this.emptySections = emptySections;
+        ExposureKernel k = out.kernel;
+        int[] columnY = k.columnY;
+        boolean[] anchor = k.columnAnchor;
+        // Surface-optimized: for each (x,z) column only the top block is a candidate
+        // (or, under a flower/grass top, the block it grows on)
+        int lo = Integer.MAX_VALUE, hi = Integer.MIN_VALUE;
+        int topLo = Integer.MAX_VALUE, topHi = Integer.MIN_VALUE;
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                int col = (x << 4) | z;
+                columnY[col] = Integer.MIN_VALUE;
+                if (columns != null && !ChunkPlan.hasColumn(columns, x, z)) continue;
+                int y = Math.min(yTo, surfaceY(x, z));
+                if (y < yFrom) continue;
+                Material src = snap.getBlockType(x, y, z);
+                // Never replace AIR or liquids as source
+                if (flags.has(src, MaterialFlags.AIR | MaterialFlags.LIQUID)) continue;
+                if (flags.has(src, MaterialFlags.FLOWER_OR_GRASS)) {
+                    y--;
+                    if (!withinWorldY(y)) continue;
+                    anchor[col] = true;
+                } else {
+                    anchor[col] = false;
+                    topLo = Math.min(topLo, y);
+                    topHi = Math.max(topHi, y);
+                }
+                columnY[col] = y;
+                lo = Math.min(lo, y);
+                hi = Math.max(hi, y);
+            }
+        }
+        if (lo > hi) return;
+
+        k.reset(worldMin, Math.max(worldMin, lo - underDepth - 1), Math.min(worldMaxExclusive - 1, hi + underDepth + 1));
+        if (topLo <= topHi) {
+            // occupancy of exposure neighbors, only in the layers that touch a surface block
+            int yA = Math.max(worldMin, topLo - 1);
+            int yB = Math.min(worldMaxExclusive - 1, topHi + 1);
+            boolean airExposes = exposed(Material.AIR);
+            for (int y = yA; y <= yB; y++) {
+                if (sectionEmpty(y)) {
+                    // all air: the whole layer is either occupied or not
+                    if (airExposes) Arrays.fill(k.occupied, k.index(0, y, 0) >>> 6, (k.index(0, y, 0) >>> 6) + 4, -1L);
+                    continue;
+                }
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (exposed(snap.getBlockType(x, y, z))) ExposureKernel.set(k.occupied, k.index(x, y, z));
+                    }
+                }
+            }
+            k.computeExposed();
+        }
+        for (int col = 0; col < 256; col++) {
+            int y = columnY[col];
+            if (y == Integer.MIN_VALUE) continue;
+            int x = col >> 4;
+            int z = col & 15;
+            int idx = k.index(x, y, z);
+            if (anchor[col] || ExposureKernel.get(k.exposed, idx)) {
+                ExposureKernel.set(k.seeds, idx);
+            } else if (x == 0 || x == 15 || z == 0 || z == 15) {
+                int exposure = edgeExposure(x, y, z);
+                if (exposure > 0) {
+                    ExposureKernel.set(k.seeds, idx);
+                } else if (exposure < 0) {
+                    out.deferColumn(x, z);
+                }
+            }
+        }
+        // seeds plus the underDepth star around each of them, deduplicated by construction
+        k.computeChain(underDepth, underFloor);
+        long[] chain = k.chain;
+        for (int section = 0; section < k.words >> 6; section++) {
+            // an empty section only holds air, which is never a source
+            if (sectionEmpty(k.baseY + (section << 4))) continue;
+            for (int w = section << 6, end = w + 64; w < end; w++) {
+                long bits = chain[w];
+                while (bits != 0L) {
+                    int idx = (w << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int x = idx & 15;
+                    int z = (idx >> 4) & 15;
+                    int y = k.baseY + (idx >>> 8);
+                    Material current = snap.getBlockType(x, y, z);
+                    if (flags.has(current, MaterialFlags.NOT_SOURCE)) continue;
+                    Material pick = palette.block(current);
+                    if (pick == null) continue;
+                    out.add(x, y, z, current, pick);
+                }
+            }
+        }
+    }
+
+    private boolean sectionEmpty(int y) {
+        return emptySections[(y - worldMin) >> 4];
+    }
+
+    // Snapshot heightmaps report the first free Y while World#getHighestBlockYAt reports
+    // the block itself; step down onto the block so both agree.
+    private int surfaceY(int x, int z) {
+        int top = snap.getHighestBlockYAt(x, z);
+        if (top >= worldMaxExclusive) return worldMaxExclusive - 1;
+        if (top > worldMin && snap.getBlockType(x, top, z).isAir()) return top - 1;
+        return top;
+    }
+
+    // Exposure through the chunk border, for edge blocks the kernel found enclosed inside
+    // the chunk: 1 = exposed, 0 = enclosed, -1 = undecided because a neighbor is not loaded
+    private int edgeExposure(int x, int y, int z) {
+        boolean unknown = false;
+        if (x == 15) {
+            if (east == null) unknown = true;
+            else if (exposed(east.getBlockType(0, y, z))) return 1;
+        }
+        if (x == 0) {
+            if (west == null) unknown = true;
+            else if (exposed(west.getBlockType(15, y, z))) return 1;
+        }
+        if (z == 15) {
+            if (south == null) unknown = true;
+            else if (exposed(south.getBlockType(x, y, 0))) return 1;
+        }
+        if (z == 0) {
+            if (north == null) unknown = true;
+            else if (exposed(north.getBlockType(x, y, 15))) return 1;
+        }
+        return unknown ? -1 : 0;
+    }
+
+    private boolean exposed(Material neighbor) {
+        return flags.has(neighbor, MaterialFlags.EXPOSURE_NEIGHBOR);
+    }
+
+    private boolean withinWorldY(int y) {
+        return y >= worldMin && y < worldMaxExclusive;
+    }
+}
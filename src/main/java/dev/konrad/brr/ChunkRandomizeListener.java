@@ -2,9 +2,17 @@ package dev.konrad.brr;
 
 import org.bukkit.Chunk;
 import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldSaveEvent;
 
 public class ChunkRandomizeListener implements Listener {
 
@@ -19,12 +27,50 @@ public class ChunkRandomizeListener implements Listener {
         Chunk chunk = e.getChunk();
         World world = chunk.getWorld();
         if (!plugin.isWorldEnabled(world)) return;
-        if (!plugin.shouldTriggerOnChunkLoad()) return;
 
         // Primary trigger
         if (e.isAsynchronous()) return; // safety: only on main thread
 
-        // Always process on load (as per config; currently always true)
-        plugin.queueChunk(chunk);
+        // Neighbors may have edge columns waiting for this chunk
+        plugin.completeDeferredEdges(chunk);
+        // Writes left over from the last time this chunk was loaded
+        if (plugin.resumeParkedWork(chunk)) return;
+        // Already randomized with this palette epoch: only one-off transforms (nether water)
+        // that have not run on this chunk yet are left, and the pipeline knows which
+        boolean randomize = plugin.shouldTriggerOnChunkLoad() && !plugin.isChunkCurrent(chunk);
+        plugin.queueChunk(chunk, ChunkWorkScheduler.Lane.PLAYER, randomize);
+    }
+
+    @EventHandler
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        plugin.forgetDeferredEdges(e.getChunk());
+        plugin.parkChunkWork(e.getChunk());
+        plugin.flushLedger(e.getChunk());
+    }
+
+    // Dirty marks for the periodic sweep
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent e) {
+        plugin.markChunkDirty(e.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent e) {
+        plugin.markChunkDirty(e.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent e) {
+        for (Block b : e.blockList()) plugin.markChunkDirty(b);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent e) {
+        for (Block b : e.blockList()) plugin.markChunkDirty(b);
+    }
+
+    @EventHandler
+    public void onWorldSave(WorldSaveEvent e) {
+        plugin.flushLedger(e.getWorld());
     }
 }
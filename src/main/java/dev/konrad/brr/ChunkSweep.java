@@ -0,0 +1,66 @@
+package dev.konrad.brr;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+
+import java.util.Arrays;
+
+// Periodic trigger as a sweeping cursor: one pass over the loaded chunks (taken as packed
+// keys when the pass starts) spread evenly over the period, instead of queueing every
+// loaded chunk in one tick. Chunks are marked dirty by block place/break/explode events
+// so the sweep can skip the ones nothing happened in since its last visit.
+// Main thread only.
+final class ChunkSweep {
+    private final WorldIndex worldIndex;
+    private final LongLongMap dirty = new LongLongMap(); // used as a set
+    private long[] keys = new long[256];
+    private int count;
+    private int cursor;
+
+    ChunkSweep(WorldIndex worldIndex) {
+        this.worldIndex = worldIndex;
+    }
+
+    void markDirty(long key) {
+        dirty.put(key, 0L);
+    }
+
+    // True if the chunk changed since it was last visited; clears the mark
+    boolean takeDirty(long key) {
+        return dirty.remove(key);
+    }
+
+    void forget(long key) {
+        dirty.remove(key);
+    }
+
+    boolean isDone() {
+        return cursor >= count;
+    }
+
+    void start(Iterable<World> worlds) {
+        count = 0;
+        cursor = 0;
+        for (World w : worlds) {
+            for (Chunk c : w.getLoadedChunks()) {
+                if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+                keys[count++] = worldIndex.chunkKey(w, c.getX(), c.getZ());
+            }
+        }
+    }
+
+    // How many keys to visit per tick for one pass to take periodTicks
+    int perTick(long periodTicks) {
+        return (int) Math.max(1L, (count + periodTicks - 1) / periodTicks);
+    }
+
+    long next() {
+        return keys[cursor++];
+    }
+
+    void clear() {
+        count = 0;
+        cursor = 0;
+        dirty.clear();
+    }
+}
@@ -0,0 +1,47 @@
+package dev.konrad.brr;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.block.data.BlockData;
+
+// One stage of the chunk pipeline (see ChunkPipeline). A queued chunk is read once: every
+// stage that applies plans from the same snapshot, and their writes are applied as one
+// ChunkWork. Adding a transform means registering a stage, not another scan and scheduler.
+interface ChunkTransform {
+
+    // ChunkLedger transform bit marked when a whole pass of this stage is done; 0 for the
+    // palette stage, which the ledger tracks by epoch instead
+    int ledgerBit();
+
+    // Main thread: this stage's pass over the chunk, or null if it has nothing to do there.
+    // Anything the pass needs from the live world has to be captured here.
+    Pass prepare(Chunk chunk, long key, Request request);
+
+    interface Pass {
+        // Block states this pass rewrites, or null for any; skipped when the chunk's
+        // section palettes hold none of them
+        BlockData[] states();
+
+        // World Y range (inclusive) the pass finds its work in; skipped when every
+        // section of it is empty
+        int fromY();
+
+        int toY();
+
+        // Worker thread: adds this pass's writes to out, reading only snapshots
+        void plan(ChunkSnapshot snap, boolean[] emptySections, ChunkPlan out);
+    }
+
+    // What the caller queued the chunk for; one-off stages decide for themselves
+    final class Request {
+        final boolean randomize;   // run the palette stage
+        final long[] columns;      // only these columns (deferred edges), or null for all
+        final PaletteTable palette; // epoch the palette stage plans against
+
+        Request(boolean randomize, long[] columns, PaletteTable palette) {
+            this.randomize = randomize;
+            this.columns = columns;
+            this.palette = palette;
+        }
+    }
+}
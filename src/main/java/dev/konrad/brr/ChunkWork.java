@@ -0,0 +1,75 @@
+package dev.konrad.brr;
+
+import org.bukkit.Chunk;
+
+// A planned chunk waiting in the ChunkWorkScheduler; applied a slice at a time.
+// Instances and their plan buffers are pooled by the scheduler and reused across chunks.
+// The chunk is known by its key only and looked up per slice, so a unit never keeps an
+// unloaded chunk alive or loads it again.
+final class ChunkWork {
+    final ChunkPlan plan = new ChunkPlan();
+    long key;
+    ChunkWorkScheduler.Lane lane;
+    int epoch;           // palette epoch the plan was built with
+    boolean staleWrites; // upgraded to a new epoch without remapping what it already wrote
+    boolean wholeChunk;  // false for deferred-edge follow-ups, which do not count for the ledger
+    int stages;          // bit (1 << stage) per ChunkPipeline stage planned into this unit
+    boolean failed;      // planning threw; released without touching the ledger or change log
+
+    boolean ticketed;    // holds a plugin chunk ticket (unload-policy: ticket)
+    ChangeLog log;       // successful writes are recorded here
+
+    void init(long key, ChunkWorkScheduler.Lane lane, int minY) {
+        this.key = key;
+        this.lane = lane;
+        plan.reset(minY);
+    }
+
+    void clear() {
+        lane = null;
+        stages = 0;
+        failed = false;
+        staleWrites = false;
+        ticketed = false;
+        log = null;
+    }
+
+    // Carries palette-stage work: epoch, change log and rotation upgrades apply
+    boolean randomizes() {
+        return (stages & (1 << SurfaceTransform.STAGE)) != 0;
+    }
+
+    boolean isDone() {
+        return plan.isEmpty();
+    }
+
+    // Applies up to maxWrites planned positions; returns how many were consumed.
+    // Plans come out of the planner in section order, so a slice stays within one section
+    // where it can; the deadline is only checked between sections or every 64 writes.
+    int step(BlockRandomizerReloaded plugin, int maxWrites, long deadlineNanos) {
+        Chunk chunk = plugin.loadedChunk(key);
+        if (chunk == null) {
+            // unloaded without passing through the unload handler; nothing left to do safely
+            plan.reset(plan.minY);
+            return 0;
+        }
+        int ops = 0;
+        int changed = 0;
+        int section = plan.isEmpty() ? 0 : plan.peekPosition() >>> 12;
+        while (!plan.isEmpty() && ops < maxWrites) {
+            int p = plan.peekPosition();
+            if ((p >>> 12) != section || (ops & 63) == 63) {
+                if (System.nanoTime() >= deadlineNanos) break;
+                section = p >>> 12;
+            }
+            if (plugin.writeReplacement(chunk, ChunkPlan.x(p), plan.y(p), ChunkPlan.z(p), plan.peekSource(), plan.peekTarget())) {
+                changed++;
+                if (log != null && plan.peekStage() == SurfaceTransform.STAGE) log.add(p, plan.peekTarget());
+            }
+            plan.poll();
+            ops++;
+        }
+        plugin.countChangedBlocks(changed);
+        return ops;
+    }
+}
@@ -0,0 +1,127 @@
+package dev.konrad.brr;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+
+// One timer for all chunk work. Every tick it spends the shared TickBudget,
+// draining the player lane before the background lane and
+// rotating between chunks so no single chunk starves the others.
+final class ChunkWorkScheduler {
+
+    enum Lane { PLAYER, BACKGROUND }
+
+    private static final int MAX_OPS_PER_TICK = 4096;
+    private static final int SLICE = 64; // writes per chunk before moving to the next one
+    private static final int MAX_POOLED = 64;
+
+    private final BlockRandomizerReloaded plugin;
+    private final ArrayDeque<ChunkWork> playerLane = new ArrayDeque<>();
+    private final ArrayDeque<ChunkWork> backgroundLane = new ArrayDeque<>();
+    private final LongObjectMap<ChunkWork> byKey = new LongObjectMap<>();
+    private final ArrayDeque<ChunkWork> pool = new ArrayDeque<>();
+    private BukkitTask task;
+
+    ChunkWorkScheduler(BlockRandomizerReloaded plugin) {
+        this.plugin = plugin;
+    }
+
+    boolean contains(long key) {
+        return byKey.containsKey(key);
+    }
+
+    int size() {
+        return byKey.size();
+    }
+
+    // Main thread only. The returned unit is owned by the caller until submit() or release().
+    ChunkWork acquire() {
+        ChunkWork w = pool.pollFirst();
+        return w != null ? w : new ChunkWork();
+    }
+
+    void release(ChunkWork work) {
+        work.clear();
+        if (pool.size() < MAX_POOLED) pool.addLast(work);
+    }
+
+    void submit(ChunkWork work) {
+        byKey.put(work.key, work);
+        (work.lane == Lane.PLAYER ? playerLane : backgroundLane).addLast(work);
+        if (task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    // Moves queued background work for this chunk ahead of everything else
+    void promote(long key) {
+        ChunkWork w = byKey.get(key);
+        if (w == null || w.lane == Lane.PLAYER) return;
+        backgroundLane.remove(w);
+        w.lane = Lane.PLAYER;
+        playerLane.addLast(w);
+    }
+
+    // Takes the unit out of the scheduler without releasing it. Returns null if the chunk
+    // has no submitted work.
+    ChunkWork remove(long key) {
+        ChunkWork w = byKey.get(key);
+        if (w == null) return null;
+        byKey.remove(key);
+        // a unit sits in exactly one lane, once; it may be pooled or resubmitted after this
+        (w.lane == Lane.PLAYER ? playerLane : backgroundLane).remove(w);
+        return w;
+    }
+
+    void clear() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        playerLane.clear();
+        backgroundLane.clear();
+        byKey.clear();
+    }
+
+    private void tick() {
+        long deadline = plugin.getTickBudget().deadline();
+        int ops = drain(playerLane, 0, deadline);
+        drain(backgroundLane, ops, deadline);
+        if (byKey.isEmpty()) {
+            task.cancel();
+            task = null;
+            playerLane.clear();
+            backgroundLane.clear();
+        }
+    }
+
+    private int drain(ArrayDeque<ChunkWork> lane, int ops, long deadline) {
+        TickBudget budget = plugin.getTickBudget();
+        int held = 0; // units in a row whose world has used up its budget share this tick
+        while (ops < MAX_OPS_PER_TICK && !lane.isEmpty() && held < lane.size()) {
+            long start = System.nanoTime();
+            if (start >= deadline) break;
+            ChunkWork w = lane.pollFirst();
+            int world = WorldIndex.worldOf(w.key);
+            long own = budget.deadline(world, plugin.budgetShare(world));
+            if (start >= own) {
+                lane.addLast(w);
+                held++;
+                continue;
+            }
+            held = 0;
+            plugin.upgradeIfStale(w);
+            ops += w.step(plugin, Math.min(SLICE, MAX_OPS_PER_TICK - ops), own);
+            budget.charge(world, System.nanoTime() - start);
+            if (w.isDone()) {
+                byKey.remove(w.key);
+                plugin.onChunkWorkDone(w);
+                release(w);
+            } else {
+                lane.addLast(w);
+            }
+        }
+        return ops;
+    }
+}
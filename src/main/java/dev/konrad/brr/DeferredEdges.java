@@ -0,0 +1,12 @@
+package dev.konrad.brr;
+
+// Edge columns of one chunk whose exposure could not be decided without its neighbors,
+// bit (x << 4) | z, and the lane the work that deferred them ran on. Main thread only.
+final class DeferredEdges {
+    final long[] columns = new long[4];
+    ChunkWorkScheduler.Lane lane;
+
+    DeferredEdges(ChunkWorkScheduler.Lane lane) {
+        this.lane = lane;
+    }
+}
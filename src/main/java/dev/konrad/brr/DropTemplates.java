@@ -0,0 +1,99 @@
+package dev.konrad.brr;
+
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.meta.PotionMeta;
+import org.bukkit.potion.PotionData;
+import org.bukkit.potion.PotionType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Block-break drop stacks cloned from prebuilt templates instead of built per break: one
+// template per material, and for potions one per valid base potion variant, so a drop
+// never touches meta just to exist. Per item type it also keeps the enchantments that can
+// legally go on it. Nothing here depends on config, only on the server's registries, so
+// it is built once at enable; the applicable-enchantment pools fill in lazily. Main thread.
+final class DropTemplates {
+    private static final Enchantment[] NONE = new Enchantment[0];
+
+    private final ItemStack[] templates;        // by ordinal, amount 1; null for legacy and air
+    private final ItemStack[][] potionVariants; // by ordinal, POTION / SPLASH_POTION / LINGERING_POTION only
+    private final Enchantment[] enchantments;
+    private final Enchantment[][] applicable;   // by ordinal, see applicableTo
+
+    DropTemplates() {
+        Material[] all = Material.values();
+        templates = new ItemStack[all.length];
+        potionVariants = new ItemStack[all.length][];
+        applicable = new Enchantment[all.length][];
+        for (Material m : all) {
+            if (m.isLegacy() || m.isAir()) continue;
+            templates[m.ordinal()] = new ItemStack(m, 1);
+        }
+        List<PotionData> variants = potionVariants();
+        for (Material m : new Material[]{Material.POTION, Material.SPLASH_POTION, Material.LINGERING_POTION}) {
+            List<ItemStack> stacks = new ArrayList<>(variants.size());
+            for (PotionData data : variants) {
+                ItemStack it = new ItemStack(m, 1);
+                try {
+                    ItemMeta raw = it.getItemMeta();
+                    if (!(raw instanceof PotionMeta)) break;
+                    PotionMeta pm = (PotionMeta) raw;
+                    pm.setBasePotionData(data);
+                    it.setItemMeta(pm);
+                    stacks.add(it);
+                } catch (Throwable ignored) {}
+            }
+            if (!stacks.isEmpty()) potionVariants[m.ordinal()] = stacks.toArray(new ItemStack[0]);
+        }
+        Enchantment[] values = Enchantment.values();
+        enchantments = values != null ? values : NONE;
+    }
+
+    // Every base potion the API accepts: each type plain, plus its extended and upgraded
+    // forms where the type has them
+    private static List<PotionData> potionVariants() {
+        List<PotionData> out = new ArrayList<>();
+        for (PotionType t : PotionType.values()) {
+            if (t == PotionType.UNCRAFTABLE) continue;
+            out.add(new PotionData(t, false, false));
+            if (t.isExtendable()) out.add(new PotionData(t, true, false));
+            if (t.isUpgradeable()) out.add(new PotionData(t, false, true));
+        }
+        return out;
+    }
+
+    // A fresh stack of m with amount 1; potions come with a random base potion
+    ItemStack stack(Material m, Random rng) {
+        ItemStack[] variants = potionVariants[m.ordinal()];
+        if (variants != null) return variants[rng.nextInt(variants.length)].clone();
+        ItemStack t = templates[m.ordinal()];
+        return t != null ? t.clone() : new ItemStack(m, 1);
+    }
+
+    Enchantment[] all() {
+        return enchantments;
+    }
+
+    // Enchantments that can go on m by the vanilla rules
+    Enchantment[] applicableTo(Material m) {
+        Enchantment[] pool = applicable[m.ordinal()];
+        if (pool != null) return pool;
+        ItemStack probe = templates[m.ordinal()];
+        List<Enchantment> fits = new ArrayList<>();
+        if (probe != null) {
+            for (Enchantment e : enchantments) {
+                try {
+                    if (e.canEnchantItem(probe)) fits.add(e);
+                } catch (Throwable ignored) {}
+            }
+        }
+        pool = fits.isEmpty() ? NONE : fits.toArray(new Enchantment[0]);
+        applicable[m.ordinal()] = pool;
+        return pool;
+    }
+}
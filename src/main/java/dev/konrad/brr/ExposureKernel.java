@@ -0,0 +1,117 @@
+package dev.konrad.brr;
+
+import java.util.Arrays;
+
+// Bit-parallel block sets over a vertical run of 16x16x16 sections.
+// Bit (ly << 8) | (z << 4) | x, with ly counted from the first section of the run, so each
+// section is 64 consecutive words and each word holds four 16-block x-rows of one layer.
+// Neighbor tests become whole-word shifts: x by 1 bit, z by 16 bits, y by 4 words.
+// One instance is owned by each pooled ChunkPlan; buffers are reused across chunks.
+final class ExposureKernel {
+    private static final long X0 = 0x0001000100010001L;  // bits with x == 0
+    private static final long X15 = 0x8000800080008000L; // bits with x == 15
+
+    static final int PLUS_X = 0, MINUS_X = 1, PLUS_Z = 2, MINUS_Z = 3, PLUS_Y = 4, MINUS_Y = 5;
+
+    // per-column scratch for the planner: candidate Y (or MIN_VALUE) and whether it is a plant anchor
+    final int[] columnY = new int[256];
+    final boolean[] columnAnchor = new boolean[256];
+
+    int baseY;
+    int words;
+    long[] occupied = new long[64]; // exposure-neighbor materials
+    long[] exposed = new long[64];  // blocks with at least one neighbor in occupied
+    long[] seeds = new long[64];
+    long[] chain = new long[64];
+    private long[] cur = new long[64];
+    private long[] tmp = new long[64];
+
+    // Prepares empty sets covering y in [loY, hiY], aligned to the world's sections
+    void reset(int worldMin, int loY, int hiY) {
+        baseY = worldMin + (((loY - worldMin) >> 4) << 4);
+        int sections = ((hiY - baseY) >> 4) + 1;
+        words = sections * 64;
+        if (occupied.length < words) {
+            occupied = new long[words];
+            exposed = new long[words];
+            seeds = new long[words];
+            chain = new long[words];
+            cur = new long[words];
+            tmp = new long[words];
+        } else {
+            Arrays.fill(occupied, 0, words, 0L);
+            Arrays.fill(seeds, 0, words, 0L);
+        }
+    }
+
+    static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << (index & 63);
+    }
+
+    static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << (index & 63))) != 0L;
+    }
+
+    int index(int x, int y, int z) {
+        return ((y - baseY) << 8) | (z << 4) | x;
+    }
+
+    // exposed = union of occupied shifted one block in each of the six directions
+    void computeExposed() {
+        Arrays.fill(exposed, 0, words, 0L);
+        for (int dir = 0; dir < 6; dir++) {
+            shift(occupied, tmp, dir);
+            for (int k = 0; k < words; k++) exposed[k] |= tmp[k];
+        }
+    }
+
+    // chain = seeds plus, per axis direction, every block up to depth steps away from a seed
+    // (the same "star" shape applyChainAt used to walk). Downward steps stop below floorY.
+    void computeChain(int depth, int floorY) {
+        System.arraycopy(seeds, 0, chain, 0, words);
+        int floorWords = Math.max(0, Math.min(words, (floorY - baseY) * 4));
+        for (int dir = 0; dir < 6; dir++) {
+            System.arraycopy(seeds, 0, cur, 0, words);
+            for (int d = 0; d < depth; d++) {
+                shift(cur, tmp, dir);
+                long[] t = cur;
+                cur = tmp;
+                tmp = t;
+                if (dir == MINUS_Y && floorWords > 0) Arrays.fill(cur, 0, floorWords, 0L);
+                for (int k = 0; k < words; k++) chain[k] |= cur[k];
+            }
+        }
+    }
+
+    // dst = src moved one block in dir; bits leaving the chunk or the run are dropped
+    private void shift(long[] src, long[] dst, int dir) {
+        int n = words;
+        switch (dir) {
+            case PLUS_X:
+                for (int k = 0; k < n; k++) dst[k] = (src[k] << 1) & ~X0;
+                break;
+            case MINUS_X:
+                for (int k = 0; k < n; k++) dst[k] = (src[k] >>> 1) & ~X15;
+                break;
+            case PLUS_Z:
+                // rows move up 16 bits; row z=3 of a word carries into the next word unless it was z=15
+                for (int k = 0; k < n; k++) {
+                    dst[k] = (src[k] << 16) | ((k & 3) != 0 ? src[k - 1] >>> 48 : 0L);
+                }
+                break;
+            case MINUS_Z:
+                for (int k = 0; k < n; k++) {
+                    dst[k] = (src[k] >>> 16) | ((k & 3) != 3 ? src[k + 1] << 48 : 0L);
+                }
+                break;
+            case PLUS_Y:
+                System.arraycopy(src, 0, dst, 4, n - 4);
+                Arrays.fill(dst, 0, 4, 0L);
+                break;
+            default: // MINUS_Y
+                System.arraycopy(src, 4, dst, 0, n - 4);
+                Arrays.fill(dst, n - 4, n, 0L);
+                break;
+        }
+    }
+}
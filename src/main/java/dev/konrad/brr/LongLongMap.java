@@ -0,0 +1,107 @@
+package dev.konrad.brr;
+
+import java.util.Arrays;
+
+// Open-addressing (linear probing) map from primitive long keys to primitive long values.
+final class LongLongMap {
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+    private int shift;
+
+    LongLongMap() {
+        allocate(16);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(long key) {
+        return used[find(key)];
+    }
+
+    long get(long key, long defaultValue) {
+        int i = find(key);
+        return used[i] ? values[i] : defaultValue;
+    }
+
+    void put(long key, long value) {
+        int i = find(key);
+        values[i] = value;
+        if (used[i]) return;
+        keys[i] = key;
+        used[i] = true;
+        if (++size > (mask + 1) * 3 / 5) rehash(keys.length << 1);
+    }
+
+    boolean remove(long key) {
+        int i = find(key);
+        if (!used[i]) return false;
+        int gap = i;
+        i = (gap + 1) & mask;
+        while (used[i]) {
+            int home = (int) ((keys[i] * PHI) >>> shift);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        used[gap] = false;
+        size--;
+        return true;
+    }
+
+    interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    // The map must not be modified by the action
+    void forEach(EntryConsumer action) {
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) action.accept(keys[i], values[i]);
+        }
+    }
+
+    void clear() {
+        if (size == 0) return;
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int i = (int) ((key * PHI) >>> shift);
+        while (used[i] && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int j = 0; j < oldUsed.length; j++) {
+            if (!oldUsed[j]) continue;
+            int i = find(oldKeys[j]);
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+            used[i] = true;
+        }
+    }
+}
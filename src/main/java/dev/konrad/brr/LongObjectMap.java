@@ -0,0 +1,106 @@
+package dev.konrad.brr;
+
+import java.util.Arrays;
+
+// Open-addressing (linear probing) map from primitive long keys to non-null values.
+// No boxing and no entry objects; removals shift the cluster back instead of leaving tombstones.
+final class LongObjectMap<V> {
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values; // null marks a free slot
+    private int size;
+    private int mask;
+    private int shift;
+
+    LongObjectMap() {
+        allocate(32);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean containsKey(long key) {
+        return values[find(key)] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        return (V) values[find(key)];
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null) throw new IllegalArgumentException("null value");
+        int i = find(key);
+        Object old = values[i];
+        keys[i] = key;
+        values[i] = value;
+        if (old == null && ++size > (mask + 1) * 3 / 5) rehash(keys.length << 1);
+        return (V) old;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int i = find(key);
+        Object old = values[i];
+        if (old == null) return null;
+        removeAt(i);
+        return (V) old;
+    }
+
+    void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // Slot holding key, or the free slot where it would go
+    private int find(long key) {
+        int i = (int) ((key * PHI) >>> shift);
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void removeAt(int gap) {
+        int i = (gap + 1) & mask;
+        while (values[i] != null) {
+            int home = (int) ((keys[i] * PHI) >>> shift);
+            // move the entry into the gap if the gap lies on its probe path
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        values[gap] = null;
+        size--;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null) continue;
+            int i = find(oldKeys[j]);
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package dev.konrad.brr;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.block.data.Waterlogged;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+// Config-independent facts about every Material, indexed by ordinal. Probing needs
+// createBlockData()/isItem() and a pile of name checks per material, so it runs once and
+// is cached in the data folder until the server or plugin version changes. Only the name
+// checks run in parallel; the API probes stay on the calling thread.
+// Reloads only combine these bits with the config (see MaterialFlags for the per-reload table).
+final class MaterialCapabilities {
+    static final int BLOCK = 1;
+    static final int AIR = 1 << 1;
+    static final int LIQUID = 1 << 2;        // WATER or LAVA itself
+    static final int LIQUID_NAME = 1 << 3;   // anything named after water or lava
+    static final int GRAVITY = 1 << 4;
+    static final int SOLID = 1 << 5;
+    static final int WATERLOGGABLE = 1 << 6;
+    static final int ITEM = 1 << 7;
+    static final int NON_FULL = 1 << 8;
+    static final int PLANT = 1 << 9;
+    static final int REDSTONE = 1 << 10;     // redstone or otherwise block-updating
+    static final int PORTAL = 1 << 11;
+    static final int CONTAINER = 1 << 12;
+    static final int SCULK_SENSOR = 1 << 13;
+    static final int SCULK_SHRIEKER = 1 << 14;
+    static final int SHULKER_BOX = 1 << 15;
+    static final int HEAD = 1 << 16;
+    static final int BLACKLISTED = 1 << 17;  // never a replacement, whatever the config says
+    static final int MELTS = 1 << 18;
+    static final int NO_DROP = 1 << 19;      // technical or ephemeral block without a real item
+
+    // bump when the probe rules change so old cache files are ignored
+    private static final int FORMAT = 1;
+    private static final String FILE_NAME = "capabilities.bin";
+
+    private final int[] caps;
+
+    private MaterialCapabilities(int[] caps) {
+        this.caps = caps;
+    }
+
+    int get(Material m) {
+        return caps[m.ordinal()];
+    }
+
+    boolean has(Material m, int mask) {
+        return (caps[m.ordinal()] & mask) != 0;
+    }
+
+    // All of require set and none of reject
+    boolean matches(Material m, int require, int reject) {
+        int c = caps[m.ordinal()];
+        return (c & require) == require && (c & reject) == 0;
+    }
+
+    static MaterialCapabilities load(File dataFolder, String pluginVersion, Logger log) {
+        String fingerprint = Bukkit.getVersion() + "|" + Bukkit.getBukkitVersion() + "|" + pluginVersion + "|" + Material.values().length;
+        File file = new File(dataFolder, FILE_NAME);
+        if (file.isFile()) {
+            try {
+                MaterialCapabilities cached = read(file, fingerprint);
+                if (cached != null) return cached;
+            } catch (IOException | RuntimeException e) {
+                log.warning("BRR: ignoring unreadable " + FILE_NAME + ": " + e);
+            }
+        }
+        long start = System.nanoTime();
+        MaterialCapabilities probed = probe();
+        log.info("BRR: probed " + probed.caps.length + " materials in " + ((System.nanoTime() - start) / 1_000_000L) + " ms");
+        try {
+            probed.write(file, fingerprint);
+        } catch (IOException e) {
+            log.warning("BRR: could not cache material capabilities: " + e);
+        }
+        return probed;
+    }
+
+    static MaterialCapabilities probe() {
+        Material[] all = Material.values();
+        int[] caps = new int[all.length];
+        // Pure string and enum checks; Bukkit makes no thread-safety promise for the rest
+        IntStream.range(0, all.length).parallel().forEach(i -> caps[i] = probeName(all[i]));
+        for (int i = 0; i < all.length; i++) caps[i] |= probeApi(all[i]);
+        return new MaterialCapabilities(caps);
+    }
+
+    private static MaterialCapabilities read(File file, String fingerprint) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT || !fingerprint.equals(in.readUTF())) return null;
+            Material[] all = Material.values();
+            int n = in.readInt();
+            if (n != all.length) return null;
+            int[] caps = new int[n];
+            for (int i = 0; i < n; i++) {
+                // names guard against a reordered enum behind an unchanged version string
+                if (!all[i].name().equals(in.readUTF())) return null;
+                caps[i] = in.readInt();
+            }
+            return new MaterialCapabilities(caps);
+        }
+    }
+
+    private void write(File file, String fingerprint) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+        File tmp = new File(dir, FILE_NAME + ".tmp");
+        Material[] all = Material.values();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT);
+            out.writeUTF(fingerprint);
+            out.writeInt(all.length);
+            for (int i = 0; i < all.length; i++) {
+                out.writeUTF(all[i].name());
+                out.writeInt(caps[i]);
+            }
+        }
+        if (file.exists() && !file.delete() || !tmp.renameTo(file)) throw new IOException("cannot replace " + file);
+    }
+
+    // Main thread: everything that asks the server's Material and block-data API
+    private static int probeApi(Material m) {
+        int c = 0;
+        if (m.isBlock()) c |= BLOCK;
+        if (m.isAir()) c |= AIR;
+        if (hasGravity(m)) c |= GRAVITY;
+        if (m.isSolid()) c |= SOLID;
+        if (m.isBlock() && isWaterloggable(m)) c |= WATERLOGGABLE;
+        if (isItem(m)) c |= ITEM;
+        return c;
+    }
+
+    // Any thread: only the enum constant and its name
+    private static int probeName(Material m) {
+        int c = 0;
+        String n = m.name();
+        if (m == Material.WATER || m == Material.LAVA) c |= LIQUID;
+        if (n.contains("WATER") || n.contains("LAVA")) c |= LIQUID_NAME;
+        if (matchesNonFullOrThin(n)) c |= NON_FULL;
+        if (matchesPlantOrFoliage(n)) c |= PLANT;
+        if (matchesRedstoneOrUpdateable(n)) c |= REDSTONE;
+        if (matchesPortalOrSpecial(n)) c |= PORTAL;
+        if (isContainerName(n)) c |= CONTAINER;
+        if (n.contains("SCULK_SENSOR")) c |= SCULK_SENSOR;
+        if (n.contains("SCULK_SHRIEKER")) c |= SCULK_SHRIEKER;
+        if (n.equals("SHULKER_BOX") || n.endsWith("_SHULKER_BOX")) c |= SHULKER_BOX;
+        if (n.endsWith("_HEAD") || n.endsWith("_WALL_HEAD") || n.endsWith("_SKULL") || n.endsWith("_WALL_SKULL") || n.equals("PLAYER_HEAD") || n.equals("PLAYER_WALL_HEAD")) c |= HEAD;
+        if (n.equals("ICE") || n.equals("FROSTED_ICE")) c |= MELTS | BLACKLISTED;
+        if (n.equals("DRAGON_EGG") || n.equals("BUDDING_AMETHYST") || n.equals("REDSTONE_BLOCK") || n.equals("SNOW") || n.equals("BELL") || n.equals("END_ROD") || n.equals("LIGHTNING_ROD") || n.equals("IRON_BARS") || n.equals("JUKEBOX") || n.equals("NOTE_BLOCK") || n.equals("DRIPSTONE_BLOCK") || n.equals("LECTERN") || n.equals("CRAFTING_TABLE") || n.equals("FARMLAND") || n.equals("STRUCTURE_BLOCK") || n.equals("STRUCTURE_VOID") || n.equals("JIGSAW") || n.equals("BARRIER") || n.equals("LIGHT")) {
+            c |= BLACKLISTED;
+        }
+        if (n.equals("STRUCTURE_VOID") || n.equals("JIGSAW") || n.equals("LIGHT") ||
+            n.equals("PISTON_HEAD") || n.equals("MOVING_PISTON") ||
+            n.equals("NETHER_PORTAL") || n.equals("END_PORTAL") || n.equals("END_GATEWAY") ||
+            n.equals("FIRE") || n.equals("SOUL_FIRE") || n.equals("BUBBLE_COLUMN")) {
+            c |= NO_DROP;
+        }
+        return c;
+    }
+
+    private static boolean isItem(Material m) {
+        try {
+            try {
+                // Modern API
+                return m.isItem();
+            } catch (NoSuchMethodError ignored) {
+                // Fallback: attempt to construct an ItemStack
+                org.bukkit.inventory.ItemStack test = new org.bukkit.inventory.ItemStack(m, 1);
+                return test.getType() != Material.AIR;
+            }
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    private static boolean isWaterloggable(Material m) {
+        try {
+            return m.createBlockData() instanceof Waterlogged;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    private static boolean hasGravity(Material m) {
+        try {
+            return m.hasGravity();
+        } catch (NoSuchMethodError e) {
+            // fallback: heuristic by name
+            String n = m.name();
+            return n.endsWith("SAND") || n.endsWith("GRAVEL") || n.contains("CONCRETE_POWDER") || n.contains("ANVIL");
+        }
+    }
+
+    private static boolean matchesNonFullOrThin(String n) {
+        return n.contains("SLAB") || n.contains("STAIRS") || n.contains("WALL") || n.contains("FENCE_GATE") || (n.endsWith("_FENCE") || n.equals("FENCE")) || n.contains("PANE") || n.equals("IRON_BARS") || n.equals("CHAIN") || n.endsWith("_BANNER") || n.endsWith("_BED") || n.endsWith("_CARPET") || n.equals("SNOW") || n.endsWith("_TRAPDOOR") || n.endsWith("_DOOR") || n.endsWith("_BUTTON") || n.equals("LEVER") || n.endsWith("PRESSURE_PLATE") || n.endsWith("_SIGN") || n.endsWith("_WALL_SIGN") || n.endsWith("TORCH") || n.equals("LANTERN") || n.endsWith("_LANTERN") || n.contains("CANDLE") || n.endsWith("_ROD") || n.equals("LADDER") || n.equals("VINE") || n.equals("SCAFFOLDING") || n.equals("CAMPFIRE") || n.equals("SOUL_CAMPFIRE") || n.equals("SEA_PICKLE") || n.equals("FLOWER_POT") || n.equals("CAKE") || n.contains("CAULDRON") || n.equals("POINTED_DRIPSTONE") || n.equals("AMETHYST_CLUSTER") || n.endsWith("_AMETHYST_BUD");
+    }
+
+    private static boolean matchesPlantOrFoliage(String n) {
+        return n.endsWith("_FLOWER") || n.endsWith("_FLOWERS") || n.endsWith("_SAPLING") || n.endsWith("_MUSHROOM") || n.contains("TALL_") || n.equals("GRASS") || n.equals("FERN") || n.equals("LARGE_FERN") || n.equals("SWEET_BERRY_BUSH") || n.contains("LEAVES") || n.contains("SEAGRASS") || n.contains("KELP") || n.contains("VINES") || n.contains("CORAL") || n.contains("CORAL_FAN") || n.contains("CORAL_BLOCK") || n.contains("AZALEA") || n.contains("HANGING_ROOTS") || n.contains("MANGROVE_PROPAGULE") || n.contains("BAMBOO") || n.equals("CACTUS") || n.contains("TURTLE_EGG");
+    }
+
+    private static boolean matchesRedstoneOrUpdateable(String n) {
+        return n.equals("REDSTONE_BLOCK") || n.equals("REDSTONE_WIRE") || n.equals("REPEATER") || n.equals("COMPARATOR") || n.contains("OBSERVER") || n.contains("RAIL") || n.equals("DAYLIGHT_DETECTOR") || n.contains("PISTON") || n.equals("SLIME_BLOCK") || n.equals("HONEY_BLOCK") || n.equals("TARGET") || n.contains("SCULK_SENSOR") || n.contains("SCULK_SHRIEKER") || n.contains("SCULK_CATALYST") || n.equals("SCULK") || n.equals("SCULK_VEIN") || n.equals("SCULK_BLOCK") || n.equals("TNT") || n.contains("COMMAND_BLOCK") || n.equals("LECTERN") || n.equals("CRAFTING_TABLE") || n.equals("FARMLAND") || n.equals("STRUCTURE_BLOCK") || n.equals("STRUCTURE_VOID") || n.equals("JIGSAW") || n.equals("BARRIER") || n.equals("LIGHT");
+    }
+
+    private static boolean matchesPortalOrSpecial(String n) {
+        return n.contains("_PORTAL") || n.contains("END_GATEWAY") || n.contains("PORTAL_FRAME") || n.equals("BUDDING_AMETHYST") || n.equals("DRAGON_EGG");
+    }
+
+    private static boolean isContainerName(String n) {
+        return n.equals("CHEST") || n.equals("TRAPPED_CHEST") || n.equals("ENDER_CHEST") || n.equals("BARREL") || n.equals("FURNACE") || n.equals("BLAST_FURNACE") || n.equals("SMOKER") || n.equals("HOPPER") || n.equals("DROPPER") || n.equals("DISPENSER") || n.endsWith("_SHULKER_BOX") || n.equals("SHULKER_BOX");
+    }
+}
@@ -0,0 +1,54 @@
+package dev.konrad.brr;
+
+import org.bukkit.Material;
+
+import java.util.Set;
+
+// Per-Material classification bits, compiled once per reload and indexed by ordinal.
+// Replaces the name/EnumSet/config checks that used to run for every candidate block.
+final class MaterialFlags {
+    static final int AIR = 1;
+    static final int LIQUID = 1 << 1;
+    static final int EXPOSURE_NEIGHBOR = 1 << 2;
+    static final int FLOWER_OR_GRASS = 1 << 3; // plant tops: randomize the block underneath instead
+    static final int DOOR = 1 << 4;
+    static final int WORKSTATION = 1 << 5;
+    static final int PROTECTED = 1 << 6; // block entities, plus preserved chests/spawners
+
+    // Never rewritten when found in the world: part of NOT_SOURCE, which the planner and
+    // ChunkPlan.retarget check before picking a replacement
+    static final int KEEP = PROTECTED | DOOR | FLOWER_OR_GRASS | WORKSTATION;
+    // Never used as a source at all
+    static final int NOT_SOURCE = AIR | LIQUID | KEEP;
+
+    private final int[] flags;
+
+    private MaterialFlags(int[] flags) {
+        this.flags = flags;
+    }
+
+    boolean has(Material m, int mask) {
+        return (flags[m.ordinal()] & mask) != 0;
+    }
+
+    static MaterialFlags compile(Set<Material> protectedSources, Set<Material> exposureNeighbors,
+                                 boolean preserveChests, boolean preserveSpawners) {
+        Material[] all = Material.values();
+        int[] flags = new int[all.length];
+        for (Material m : all) {
+            int f = 0;
+            String n = m.name();
+            if (m.isAir()) f |= AIR;
+            if (m == Material.WATER || m == Material.LAVA) f |= LIQUID;
+            if (exposureNeighbors.contains(m)) f |= EXPOSURE_NEIGHBOR;
+            if (BlockRandomizerReloaded.isFlowerOrGrass(m)) f |= FLOWER_OR_GRASS;
+            if (n.endsWith("_DOOR")) f |= DOOR;
+            if (m == Material.LECTERN || m == Material.CRAFTING_TABLE || n.equals("FLETCHING_TABLE")) f |= WORKSTATION;
+            if (protectedSources.contains(m)) f |= PROTECTED;
+            if (m == Material.SPAWNER && preserveSpawners) f |= PROTECTED;
+            if ((m == Material.CHEST || m == Material.TRAPPED_CHEST || m == Material.ENDER_CHEST) && preserveChests) f |= PROTECTED;
+            flags[m.ordinal()] = f;
+        }
+        return new MaterialFlags(flags);
+    }
+}
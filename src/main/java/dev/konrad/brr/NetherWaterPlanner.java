@@ -0,0 +1,70 @@
+package dev.konrad.brr;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Levelled;
+
+import java.util.function.Predicate;
+
+// Finds the lava of a nether chunk for the lava-to-water conversion (NetherWaterTransform),
+// reading only a ChunkSnapshot, so plan() can run on a worker thread. The pipeline skips
+// chunks without any lava state in their section palettes; here empty sections, and
+// sections whose own palette has no lava (SectionPalettes), are skipped.
+final class NetherWaterPlanner implements ChunkTransform.Pass {
+    private final BlockData[] lavaStates;
+    private final Predicate<Object> lavaMatcher; // null: every non-empty section is scanned
+    private final int minY;
+    private final int maxYExclusive;
+
+    NetherWaterPlanner(BlockData[] lavaStates, Predicate<Object> lavaMatcher, int worldMin, int worldMaxExclusive) {
+        this.lavaStates = lavaStates;
+        this.lavaMatcher = lavaMatcher;
+        this.minY = worldMin;
+        this.maxYExclusive = worldMaxExclusive;
+    }
+
+    // Source and every flowing level; main thread (createBlockData)
+    static BlockData[] lavaStates() {
+        BlockData base = Material.LAVA.createBlockData();
+        if (!(base instanceof Levelled)) return new BlockData[]{base};
+        BlockData[] states = new BlockData[((Levelled) base).getMaximumLevel() + 1];
+        for (int level = 0; level < states.length; level++) {
+            Levelled state = (Levelled) base.clone();
+            state.setLevel(level);
+            states[level] = state;
+        }
+        return states;
+    }
+
+    @Override
+    public BlockData[] states() {
+        return lavaStates;
+    }
+
+    @Override
+    public int fromY() {
+        return minY;
+    }
+
+    @Override
+    public int toY() {
+        return maxYExclusive - 1;
+    }
+
+    // LAVA -> WATER in section order
+    @Override
+    public void plan(ChunkSnapshot snap, boolean[] emptySections, ChunkPlan out) {
+        int sections = (maxYExclusive - minY) >> 4;
+        boolean[] lava = lavaMatcher != null ? SectionPalettes.sections(snap, lavaMatcher) : null;
+        for (int s = 0; s < sections; s++) {
+            if (emptySections[s]) continue;
+            if (lava != null && s < lava.length && !lava[s]) continue;
+            int baseY = minY + (s << 4);
+            for (int i = 0; i < 4096; i++) {
+                int x = i & 15, z = (i >> 4) & 15, y = baseY + (i >> 8);
+                if (snap.getBlockType(x, y, z) == Material.LAVA) out.add(x, y, z, Material.LAVA, Material.WATER);
+            }
+        }
+    }
+}
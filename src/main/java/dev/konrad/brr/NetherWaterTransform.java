@@ -0,0 +1,36 @@
+package dev.konrad.brr;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.util.function.Predicate;
+
+// Nether lava to water, once per chunk: joins whatever pass the chunk gets queued for
+// (on load at the latest) until the ledger's NETHER_WATER mark says it is done.
+final class NetherWaterTransform implements ChunkTransform {
+    private final BlockRandomizerReloaded plugin;
+    private final BlockData[] lavaStates = NetherWaterPlanner.lavaStates();
+    private final Predicate<Object> lavaMatcher = SectionPalettes.matcher(lavaStates);
+
+    NetherWaterTransform(BlockRandomizerReloaded plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public int ledgerBit() {
+        return ChunkLedger.NETHER_WATER;
+    }
+
+    @Override
+    public Pass prepare(Chunk chunk, long key, Request request) {
+        if (request.columns != null) return null; // edge follow-ups are for the palette stage only
+        World w = chunk.getWorld();
+        if (w.getEnvironment() != World.Environment.NETHER) return null;
+        // Config toggle, per world
+        if (!plugin.profile(w).netherWater) return null;
+        // Converted on an earlier load; the ledger remembers it across restarts
+        if (plugin.getLedger().hasTransform(chunk, key, ChunkLedger.NETHER_WATER)) return null;
+        return new NetherWaterPlanner(lavaStates, lavaMatcher, w.getMinHeight(), w.getMaxHeight());
+    }
+}
@@ -0,0 +1,66 @@
+package dev.konrad.brr;
+
+import org.bukkit.Material;
+
+// One palette epoch compiled into dense arrays indexed by Material ordinal.
+// Built completely before it is published and never modified afterwards, so any
+// thread holding a reference sees a consistent mapping. A null entry means "leave as is".
+final class PaletteTable {
+    final int epoch;
+    private final Material[] blocks;
+    private final Material[] drops;
+
+    PaletteTable(int epoch, Material[] blocks, Material[] drops) {
+        this.epoch = epoch;
+        this.blocks = blocks;
+        this.drops = drops;
+    }
+
+    static PaletteTable empty(int epoch) {
+        int n = Material.values().length;
+        return new PaletteTable(epoch, new Material[n], new Material[n]);
+    }
+
+    Material block(Material source) {
+        return blocks[source.ordinal()];
+    }
+
+    Material drop(Material source) {
+        return drops[source.ordinal()];
+    }
+
+    // Deterministic palette: each pick is a pure function of (seed, epoch, source name) over
+    // the weighted candidate tables, so restarts and other threads derive exactly the same
+    // table. Tables are compiled in name order, which does not move between server versions.
+    static PaletteTable derive(long seed, int epoch, WeightTable blockPool, WeightTable dropPool) {
+        Material[] all = Material.values();
+        Material[] blocks = new Material[all.length];
+        Material[] drops = new Material[all.length];
+        for (Material m : all) {
+            if (!m.isBlock() || m.isAir()) continue;
+            long h = mix(seed ^ mix(((long) epoch << 32) ^ m.name().hashCode()));
+            blocks[m.ordinal()] = pickNotSource(blockPool, m, h);
+            drops[m.ordinal()] = pickNotSource(dropPool, m, mix(h ^ DROP_SALT));
+        }
+        return new PaletteTable(epoch, blocks, drops);
+    }
+
+    private static final long DROP_SALT = 0x5DEECE66DL;
+
+    // Weighted over the pool minus the source itself; null when nothing else is left
+    private static Material pickNotSource(WeightTable pool, Material source, long h) {
+        if (pool.isEmpty()) return null;
+        return pool.pickNot(source, unit(h));
+    }
+
+    private static double unit(long h) {
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -3,7 +3,6 @@ package dev.konrad.brr;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.bukkit.entity.LivingEntity;
-import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -15,9 +14,7 @@ import org.bukkit.potion.PotionEffectType;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class PotionChaosListener implements Listener {
@@ -30,13 +27,12 @@ public class PotionChaosListener implements Listener {
     // Randomize drink-applied effects by canceling and substituting
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onEntityPotionEffect(EntityPotionEffectEvent event) {
-        if (!isEnabled()) return;
         EntityPotionEffectEvent.Cause cause = event.getCause();
         if (cause != EntityPotionEffectEvent.Cause.POTION_DRINK) return;
         if (!(event.getEntity() instanceof LivingEntity)) return;
         LivingEntity le = (LivingEntity) event.getEntity();
         World w = le.getWorld();
-        if (!plugin.isWorldEnabled(w)) return;
+        if (!plugin.profile(w).potions) return;
         // avoid interfering with plugin-applied effects
         if (cause == EntityPotionEffectEvent.Cause.PLUGIN) return;
         // Cancel the vanilla effect and apply random
@@ -47,9 +43,8 @@ public class PotionChaosListener implements Listener {
     // Replace splash potion effects
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onPotionSplash(PotionSplashEvent event) {
-        if (!isEnabled()) return;
         World w = event.getEntity().getWorld();
-        if (!plugin.isWorldEnabled(w)) return;
+        if (!plugin.profile(w).potions) return;
         event.setCancelled(true);
         for (LivingEntity le : event.getAffectedEntities()) {
             applyRandomEffect(le);
@@ -59,9 +54,8 @@ public class PotionChaosListener implements Listener {
     // Replace lingering potion by applying random effect instantly and removing the cloud
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onLingering(LingeringPotionSplashEvent event) {
-        if (!isEnabled()) return;
         World w = event.getEntity().getWorld();
-        if (!plugin.isWorldEnabled(w)) return;
+        if (!plugin.profile(w).potions) return;
         event.setCancelled(true);
         org.bukkit.entity.AreaEffectCloud cloud = event.getAreaEffectCloud();
         double radius = cloud.getRadius();
@@ -72,13 +66,6 @@ public class PotionChaosListener implements Listener {
         cloud.remove();
     }
 
-    private boolean isEnabled() {
-        org.bukkit.configuration.ConfigurationSection t = plugin.getConfig().getConfigurationSection("trolling");
-        if (t == null) return true;
-        org.bukkit.configuration.ConfigurationSection pr = t.getConfigurationSection("potion-randomize");
-        return pr == null || pr.getBoolean("enabled", true);
-    }
-
     private static final List<PotionEffectType> ALLOWED = new ArrayList<>(Arrays.asList(
             PotionEffectType.SPEED,
             PotionEffectType.SLOW,
@@ -0,0 +1,160 @@
+package dev.konrad.brr;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+
+// Rotation catch-up, nearest-player first. Nothing is stored per loaded chunk: every
+// REFRESH_TICKS the view square around each player is walked lazily and the chunks the
+// filter still wants are ranked into a min-heap by squared chunk distance. A player whose
+// square came up clean (every loaded chunk in it confirmed current, none just in flight)
+// is not walked again until they cross into another chunk, a unit in their world ends
+// without making its chunk current, or the queue is invalidated by a rotation. Chunks no
+// player can see wait until someone comes close (or unload, in which case the load
+// trigger takes over). Main thread only.
+final class ProximityQueue {
+    static final int REFRESH_TICKS = 20;
+
+    static final int CURRENT = 0; // nothing left to do
+    static final int WANTED = 1;  // needs a pass
+    static final int BUSY = 2;    // in flight; not known to end current yet
+
+    interface Filter {
+        int state(World world, int chunkX, int chunkZ, long key);
+    }
+
+    private final WorldIndex worldIndex;
+    private final LongLongMap cleanAt = new LongLongMap(); // player key -> chunk key of the last clean walk
+    private final LongLongMap best = new LongLongMap();    // per refresh: chunk key -> nearest distance
+    private long[] heapKeys = new long[64];
+    private int[] heapDist = new int[64];
+    private int heapSize;
+    private int refreshedAt = Integer.MIN_VALUE;
+
+    ProximityQueue(WorldIndex worldIndex) {
+        this.worldIndex = worldIndex;
+    }
+
+    // A rotation happened: every player's surroundings need another look
+    void invalidate() {
+        cleanAt.clear();
+        heapSize = 0;
+        refreshedAt = Integer.MIN_VALUE;
+    }
+
+    // A unit in this world ended without marking its chunk current: walk its players again
+    void forgetWorld(int world) {
+        if (cleanAt.size() == 0) return;
+        LongLongMap keep = new LongLongMap();
+        cleanAt.forEach((pk, at) -> {
+            if (WorldIndex.worldOf(at) != world) keep.put(pk, at);
+        });
+        cleanAt.clear();
+        keep.forEach(cleanAt::put);
+    }
+
+    int size() {
+        return heapSize;
+    }
+
+    // Re-rank against current player positions, at most once per REFRESH_TICKS
+    void refreshIfDue(Filter filter) {
+        int tick = Bukkit.getCurrentTick();
+        if (refreshedAt != Integer.MIN_VALUE && tick - refreshedAt < REFRESH_TICKS) return;
+        refreshedAt = tick;
+        refresh(filter);
+    }
+
+    boolean hasReady() {
+        return heapSize > 0;
+    }
+
+    // Nearest ready chunk key
+    long poll() {
+        long key = heapKeys[0];
+        heapSize--;
+        if (heapSize > 0) {
+            heapKeys[0] = heapKeys[heapSize];
+            heapDist[0] = heapDist[heapSize];
+            siftDown(0);
+        }
+        return key;
+    }
+
+    private void refresh(Filter filter) {
+        heapSize = 0;
+        best.clear();
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            Location l = p.getLocation();
+            World w = l.getWorld();
+            int pcx = l.getBlockX() >> 4;
+            int pcz = l.getBlockZ() >> 4;
+            int wi = worldIndex.indexOf(w);
+            long here = WorldIndex.chunkKey(wi, pcx, pcz);
+            long pk = WorldIndex.playerKey(p);
+            if (cleanAt.containsKey(pk) && cleanAt.get(pk, 0L) == here) continue;
+            int view = p.getViewDistance();
+            boolean found = false;
+            boolean busy = false;
+            for (int dx = -view; dx <= view; dx++) {
+                for (int dz = -view; dz <= view; dz++) {
+                    int cx = pcx + dx;
+                    int cz = pcz + dz;
+                    long key = WorldIndex.chunkKey(wi, cx, cz);
+                    int d = dx * dx + dz * dz;
+                    long known = best.get(key, -1L);
+                    if (known >= 0L) {
+                        if (d < known) best.put(key, d);
+                        found = true;
+                        continue;
+                    }
+                    if (!w.isChunkLoaded(cx, cz)) continue;
+                    int state = filter.state(w, cx, cz, key);
+                    if (state == BUSY) busy = true;
+                    if (state != WANTED) continue;
+                    best.put(key, d);
+                    found = true;
+                }
+            }
+            if (found || busy) cleanAt.remove(pk);
+            else cleanAt.put(pk, here);
+        }
+        best.forEach((key, d) -> push(key, (int) d));
+    }
+
+    private void push(long key, int dist) {
+        if (heapSize == heapKeys.length) {
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            heapDist = Arrays.copyOf(heapDist, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapDist[parent] <= dist) break;
+            heapKeys[i] = heapKeys[parent];
+            heapDist[i] = heapDist[parent];
+            i = parent;
+        }
+        heapKeys[i] = key;
+        heapDist[i] = dist;
+    }
+
+    private void siftDown(int i) {
+        long key = heapKeys[i];
+        int dist = heapDist[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapDist[child + 1] < heapDist[child]) child++;
+            if (heapDist[child] >= dist) break;
+            heapKeys[i] = heapKeys[child];
+            heapDist[i] = heapDist[child];
+            i = child;
+        }
+        heapKeys[i] = key;
+        heapDist[i] = dist;
+    }
+}
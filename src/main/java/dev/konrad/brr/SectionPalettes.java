@@ -0,0 +1,82 @@
+package dev.konrad.brr;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.block.data.BlockData;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// Palette checks for a single section. The API only asks the whole chunk
+// (ChunkSnapshot.contains), which CraftBukkit answers by asking the paletted container of
+// each section in turn; this puts the same question to one section, by reflection. The
+// handles are resolved once; when the server's internals do not match, matcher() returns
+// null and callers scan every non-empty section as before.
+final class SectionPalettes {
+    private static boolean resolved;
+    private static Field containers;  // CraftChunkSnapshot.blockids, one container per section
+    private static Method maybeHas;   // PalettedContainer.maybeHas(Predicate); obfuscated name
+    private static Method nmsState;   // CraftBlockData.getState()
+
+    private SectionPalettes() {
+    }
+
+    // Main thread. Accepts the server-side states behind the given BlockData; null if
+    // section palettes cannot be read on this server
+    static synchronized Predicate<Object> matcher(BlockData[] states) {
+        if (!resolved) resolve();
+        if (containers == null || states.length == 0) return null;
+        Set<Object> nms = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            for (BlockData state : states) nms.add(nmsState.invoke(state));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+        return nms::contains;
+    }
+
+    // Any thread. One flag per section, true if its palette may hold a state the matcher
+    // accepts; null if this snapshot cannot be read that way
+    static boolean[] sections(ChunkSnapshot snap, Predicate<Object> matcher) {
+        try {
+            if (!containers.getDeclaringClass().isInstance(snap)) return null;
+            Object[] sections = (Object[]) containers.get(snap);
+            boolean[] out = new boolean[sections.length];
+            for (int s = 0; s < sections.length; s++) {
+                out[s] = (Boolean) maybeHas.invoke(sections[s], matcher);
+            }
+            return out;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void resolve() {
+        resolved = true;
+        try {
+            String craft = Bukkit.getServer().getClass().getPackage().getName();
+            Field f = Class.forName(craft + ".CraftChunkSnapshot").getDeclaredField("blockids");
+            if (!f.getType().isArray()) return;
+            Method m = null;
+            for (Method candidate : f.getType().getComponentType().getMethods()) {
+                Class<?>[] params = candidate.getParameterTypes();
+                if (candidate.getReturnType() == boolean.class && params.length == 1 && params[0] == Predicate.class) {
+                    if (m != null) return; // ambiguous: not the container we know
+                    m = candidate;
+                }
+            }
+            if (m == null) return;
+            Method state = Class.forName(craft + ".block.data.CraftBlockData").getMethod("getState");
+            f.setAccessible(true);
+            maybeHas = m;
+            nmsState = state;
+            containers = f;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            containers = null;
+        }
+    }
+}
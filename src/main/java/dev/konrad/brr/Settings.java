@@ -0,0 +1,590 @@
+package dev.konrad.brr;
+
+import org.bukkit.Material;
+import org.bukkit.Sound;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+// Everything config.yml says, parsed and compiled into lookup tables in one go. Never
+// modified after construction: a reload builds a new instance off the main thread and
+// the plugin publishes it whole (see BlockRandomizerReloaded.applySettings), so a
+// listener or an async planner can keep using the instance it read.
+final class Settings {
+
+    // Worlds and triggers
+    final Set<String> enabledWorldNames;
+    final boolean allWorlds;
+    final int minY;
+    final int maxY;
+    final boolean triggerOnChunkLoad;
+    final int periodicSeconds;
+    final Set<Material> exposureNeighbors;
+    final Map<String, WorldOverride> worldOverrides; // "worlds" section, by world name
+
+    // Chunk work
+    final double tickBudgetMs;
+    final boolean adaptiveBudget;
+    final double adaptiveMinMs;
+    final double adaptiveMaxMs;
+    final double adaptiveIdleShare;
+    final double adaptiveBackoffFromMspt;
+    final boolean asyncPlanning;
+    final boolean ticketUnloadPolicy;
+    final boolean logChangedBlocks;
+    final int underDepth; // number of blocks below the surface to also replace
+    final int underMinY; // minimum Y for under-replacements
+
+    // Palette
+    final boolean paletteEnabled;
+    final boolean deterministicPalette;
+    final long paletteSeed; // 0 = each world's own seed
+    final boolean clockEpochs;
+    final int rotationSeconds;
+    final int requeuePerTick;
+    final int maxActiveChunkTasks;
+
+    // Material tables
+    final Set<Material> protectedSourceBlocks;
+    final Set<Material> replacementWhitelist;
+    final List<Material> replacementList; // name order keeps deterministic palettes stable across server versions
+    final List<Material> dropList; // blocks only
+    final Map<Material, Double> replacementWeights;
+    final WeightTable replacementTable;
+    final WeightTable dropTable;
+    final MaterialFlags materialFlags;
+    final List<Material> valuableItemList;
+    final List<Material> regularItemList;
+
+    // Drops
+    final boolean dropAllowNonBlockItems;
+    final boolean dropIncludeValuables;
+    final double dropRegularItemChance;   // regular non-block items (tools/armor/potions/food)
+    final double dropValuableItemChance;  // curated valuables (elytra, totem, etc.)
+    final int dropAmountMin;
+    final int dropAmountMax;
+    final boolean dropEnchantEnabled;
+    final double dropEnchantChance;
+    final int dropEnchantCountMin;
+    final int dropEnchantCountMax;
+    final int dropEnchantLevelMin;
+    final int dropEnchantLevelMax;
+    final boolean dropEnchantUnsafeOnAnyItem;
+
+    // Pranks
+    final boolean soundsEnabled;
+    final List<Sound> prankSounds;
+    final int soundCheckPeriodTicks;
+    final double soundPerCheckChance; // per player per check
+    final boolean fakeMessagesEnabled;
+    final List<String> fakeMessages;
+    final int fakeMsgMinMinutes;
+    final int fakeMsgMaxMinutes;
+    final boolean randomizeWeatherOnRotate;
+    final boolean teleportEnabled;
+    final int tpMinMinutes;
+    final int tpMaxMinutes;
+    final int tpMinDistance;
+    final int tpMaxDistance;
+    final int tpMinCooldownSeconds;
+    final boolean handSwapEnabled;
+    final int handSwapMinMinutes;
+    final int handSwapMaxMinutes;
+    final int handSwapCooldownSeconds;
+    final boolean ghostItemsEnabled;
+    final int ghostMinMinutes;
+    final int ghostMaxMinutes;
+    final int ghostPerEventMin;
+    final int ghostPerEventMax;
+    final int ghostDurationSeconds;
+    final boolean hungerEnabled;
+    final int hungerMinMinutes;
+    final int hungerMaxMinutes;
+    final int hungerMinDelta;
+    final int hungerMaxDelta;
+    final int hungerCooldownSeconds;
+    final boolean potionRandomize;
+    final boolean blockBreakMobEnabled;
+    final double blockBreakMobChance;
+    final boolean blockBreakMobExcludeBosses;
+    final boolean netherWater;
+
+    // Touches no server state besides the (static) material data in caps, so it is safe off the main thread
+    Settings(ConfigurationSection cfg, MaterialCapabilities caps, Logger log) {
+        Set<String> worlds = new HashSet<>(cfg.getStringList("enabled-worlds"));
+        enabledWorldNames = Collections.unmodifiableSet(worlds);
+        // If '*' present, or list empty, treat as all worlds enabled
+        allWorlds = worlds.isEmpty() || worlds.contains("*");
+
+        Map<String, WorldOverride> overrides = new HashMap<>();
+        ConfigurationSection worldsSec = cfg.getConfigurationSection("worlds");
+        if (worldsSec != null) {
+            for (String name : worldsSec.getKeys(false)) {
+                ConfigurationSection ws = worldsSec.getConfigurationSection(name);
+                if (ws != null) overrides.put(name, new WorldOverride(ws));
+            }
+        }
+        worldOverrides = Collections.unmodifiableMap(overrides);
+
+        minY = cfg.getInt("min-y", 60);
+        maxY = cfg.getInt("max-y", 320);
+
+        ConfigurationSection trig = cfg.getConfigurationSection("trigger");
+        triggerOnChunkLoad = trig == null || trig.getBoolean("on-chunk-load", true);
+        periodicSeconds = trig != null ? trig.getInt("periodic-seconds", 0) : 0;
+
+        Set<Material> neighbors = EnumSet.noneOf(Material.class);
+        for (String s : cfg.getStringList("exposure-neighbors")) {
+            Material m = safeMaterial(s);
+            if (m != null) neighbors.add(m);
+        }
+        if (neighbors.isEmpty()) {
+            Collections.addAll(neighbors, Material.AIR, Material.WATER, Material.LAVA);
+        }
+        exposureNeighbors = Collections.unmodifiableSet(neighbors);
+
+        tickBudgetMs = cfg.getDouble("tick-budget-ms", 2.0);
+        ConfigurationSection adaptSec = cfg.getConfigurationSection("adaptive-budget");
+        adaptiveBudget = adaptSec != null && adaptSec.getBoolean("enabled", true);
+        adaptiveMinMs = adaptSec != null ? adaptSec.getDouble("min-ms", 0.5) : 0.5;
+        adaptiveMaxMs = adaptSec != null ? adaptSec.getDouble("max-ms", 25.0) : 25.0;
+        adaptiveIdleShare = adaptSec != null ? adaptSec.getDouble("idle-share", 0.5) : 0.5;
+        adaptiveBackoffFromMspt = adaptSec != null ? adaptSec.getDouble("backoff-from-mspt", 35.0) : 35.0;
+        asyncPlanning = cfg.getBoolean("async-planning", true);
+        ticketUnloadPolicy = "ticket".equalsIgnoreCase(cfg.getString("unload-policy", "backlog"));
+        ConfigurationSection logSec = cfg.getConfigurationSection("log");
+        logChangedBlocks = logSec != null && logSec.getBoolean("changed-blocks", false);
+
+        ConfigurationSection underSec = cfg.getConfigurationSection("under");
+        underDepth = underSec != null ? Math.max(0, underSec.getInt("depth", 3)) : 3;
+        underMinY = underSec != null ? underSec.getInt("min-y", 57) : 57;
+
+        ConfigurationSection palCfg = cfg.getConfigurationSection("palette");
+        paletteEnabled = palCfg == null || palCfg.getBoolean("enabled", true);
+        // missing from configs written before this key existed: keep their RNG palettes
+        deterministicPalette = palCfg != null && palCfg.getBoolean("deterministic", false);
+        paletteSeed = palCfg != null ? palCfg.getLong("seed", 0L) : 0L;
+        clockEpochs = palCfg != null && "clock".equalsIgnoreCase(palCfg.getString("epoch-source", "counter"));
+        rotationSeconds = palCfg != null ? palCfg.getInt("rotation-seconds", 60) : 60;
+        requeuePerTick = palCfg != null ? Math.max(1, palCfg.getInt("requeue-per-tick", 5)) : 5;
+        maxActiveChunkTasks = palCfg != null ? Math.max(1, palCfg.getInt("max-active-chunk-tasks", 8)) : 8;
+
+        // Drops
+        ConfigurationSection drops = cfg.getConfigurationSection("drops");
+        dropAllowNonBlockItems = drops == null || drops.getBoolean("allow-non-block-items", true);
+        dropIncludeValuables = drops == null || drops.getBoolean("include-valuables", true);
+        dropAmountMin = drops != null ? Math.max(1, drops.getInt("amount-min", 1)) : 1;
+        dropAmountMax = drops != null ? Math.max(dropAmountMin, drops.getInt("amount-max", 1)) : 1;
+        dropRegularItemChance = drops != null ? Math.max(0.0, Math.min(1.0, drops.getDouble("regular-item-chance", 0.05))) : 0.05;
+        dropValuableItemChance = drops != null ? Math.max(0.0, Math.min(1.0, drops.getDouble("valuable-item-chance", 0.01))) : 0.01;
+        ConfigurationSection enchant = drops != null ? drops.getConfigurationSection("enchant") : null;
+        dropEnchantEnabled = enchant == null || enchant.getBoolean("enabled", true);
+        dropEnchantChance = enchant != null ? Math.max(0.0, Math.min(1.0, enchant.getDouble("chance", 0.01))) : 0.01;
+        dropEnchantCountMin = enchant != null ? Math.max(1, enchant.getInt("count-min", 1)) : 1;
+        dropEnchantCountMax = enchant != null ? Math.max(dropEnchantCountMin, enchant.getInt("count-max", 3)) : 3;
+        dropEnchantLevelMin = enchant != null ? Math.max(1, enchant.getInt("level-min", 1)) : 1;
+        dropEnchantLevelMax = enchant != null ? Math.max(dropEnchantLevelMin, enchant.getInt("level-max", 5)) : 5;
+        dropEnchantUnsafeOnAnyItem = enchant == null || enchant.getBoolean("unsafe-on-any-item", true);
+
+        // Material tables
+        Set<Material> protectedSources = buildProtectedSourceBlocks(caps);
+        protectedSourceBlocks = Collections.unmodifiableSet(protectedSources);
+        Set<Material> whitelist = buildWhitelist(cfg, caps, protectedSources);
+        replacementWhitelist = Collections.unmodifiableSet(whitelist);
+        boolean preserveChests = preserveNatural(cfg, "chests");
+        boolean preserveSpawners = preserveNatural(cfg, "spawners");
+        materialFlags = MaterialFlags.compile(protectedSources, neighbors, preserveChests, preserveSpawners);
+        List<Material> replacements = new ArrayList<>(whitelist);
+        replacements.sort(Comparator.comparing(Material::name));
+        replacementList = Collections.unmodifiableList(replacements);
+        List<Material> dropCandidates = buildDropList(caps);
+        dropCandidates.sort(Comparator.comparing(Material::name));
+        dropList = Collections.unmodifiableList(dropCandidates);
+        Map<Material, Double> weights = readWeights(cfg, log);
+        replacementWeights = Collections.unmodifiableMap(weights);
+        replacementTable = WeightTable.compile(replacements, weights);
+        dropTable = WeightTable.compile(dropCandidates, weights);
+        List<Material> valuables = new ArrayList<>();
+        List<Material> regular = new ArrayList<>();
+        buildItemPools(caps, valuables, regular);
+        valuableItemList = Collections.unmodifiableList(valuables);
+        regularItemList = Collections.unmodifiableList(regular);
+
+        // Pranks
+        ConfigurationSection troll = cfg.getConfigurationSection("trolling");
+
+        ConfigurationSection s = section(troll, "sounds");
+        soundsEnabled = s == null || s.getBoolean("enabled", true);
+        soundCheckPeriodTicks = s != null ? s.getInt("check-period-ticks", 100) : 100;
+        soundPerCheckChance = s != null ? s.getDouble("per-check-chance", 0.03) : 0.03;
+        prankSounds = Collections.unmodifiableList(readSounds(s));
+
+        ConfigurationSection fm = section(troll, "fake-messages");
+        fakeMessagesEnabled = fm == null || fm.getBoolean("enabled", true);
+        fakeMsgMinMinutes = fm != null ? Math.max(1, fm.getInt("min-minutes", 2)) : 2;
+        fakeMsgMaxMinutes = fm != null ? Math.max(fakeMsgMinMinutes, fm.getInt("max-minutes", 20)) : 20;
+        List<String> messages = fm != null ? fm.getStringList("messages") : null;
+        if (messages == null || messages.isEmpty()) {
+            messages = new ArrayList<>();
+            Collections.addAll(messages,
+                    "§eYou feel dizzy…",
+                    "§cYour memory fades…",
+                    "§7A cold breeze passes by.",
+                    "§5Whispers echo in the distance.",
+                    "§6Your hands tremble briefly.");
+        }
+        fakeMessages = Collections.unmodifiableList(new ArrayList<>(messages));
+
+        // Weather/time hook
+        ConfigurationSection wt = section(troll, "weather-time");
+        randomizeWeatherOnRotate = wt == null || wt.getBoolean("randomize-on-palette-rotate", true);
+
+        ConfigurationSection tp = section(troll, "random-teleport");
+        teleportEnabled = tp == null || tp.getBoolean("enabled", true);
+        tpMinMinutes = tp != null ? Math.max(1, tp.getInt("min-minutes", 1)) : 1;
+        tpMaxMinutes = tp != null ? Math.max(tpMinMinutes, tp.getInt("max-minutes", 20)) : 20;
+        tpMinDistance = tp != null ? Math.max(1, tp.getInt("min-distance-blocks", 1)) : 1;
+        tpMaxDistance = tp != null ? Math.max(tpMinDistance, tp.getInt("max-distance-blocks", 10)) : 10;
+        tpMinCooldownSeconds = tp != null ? Math.max(1, tp.getInt("min-cooldown-seconds", 30)) : 30;
+
+        ConfigurationSection hs = section(troll, "hand-swap");
+        handSwapEnabled = hs == null || hs.getBoolean("enabled", true);
+        handSwapMinMinutes = hs != null ? Math.max(1, hs.getInt("min-minutes", 2)) : 2;
+        handSwapMaxMinutes = hs != null ? Math.max(handSwapMinMinutes, hs.getInt("max-minutes", 15)) : 15;
+        handSwapCooldownSeconds = hs != null ? Math.max(1, hs.getInt("min-cooldown-seconds", 30)) : 30;
+
+        ConfigurationSection gi = section(troll, "ghost-items");
+        ghostItemsEnabled = gi == null || gi.getBoolean("enabled", true);
+        ghostMinMinutes = gi != null ? Math.max(1, gi.getInt("min-minutes", 2)) : 2;
+        ghostMaxMinutes = gi != null ? Math.max(ghostMinMinutes, gi.getInt("max-minutes", 10)) : 10;
+        ghostPerEventMin = gi != null ? Math.max(1, gi.getInt("count-min", 1)) : 1;
+        ghostPerEventMax = gi != null ? Math.max(ghostPerEventMin, gi.getInt("count-max", 2)) : 2;
+        ghostDurationSeconds = gi != null ? Math.max(5, gi.getInt("duration-seconds", 30)) : 30;
+
+        ConfigurationSection hj = section(troll, "hunger-jumps");
+        hungerEnabled = hj == null || hj.getBoolean("enabled", true);
+        hungerMinMinutes = hj != null ? Math.max(1, hj.getInt("min-minutes", 2)) : 2;
+        hungerMaxMinutes = hj != null ? Math.max(hungerMinMinutes, hj.getInt("max-minutes", 12)) : 12;
+        hungerMinDelta = hj != null ? hj.getInt("delta-min", -6) : -6;
+        hungerMaxDelta = hj != null ? Math.max(hungerMinDelta, hj.getInt("delta-max", 6)) : 6;
+        hungerCooldownSeconds = hj != null ? Math.max(1, hj.getInt("min-cooldown-seconds", 20)) : 20;
+
+        ConfigurationSection pr = section(troll, "potion-randomize");
+        potionRandomize = pr == null || pr.getBoolean("enabled", true);
+        ConfigurationSection mob = section(troll, "block-break-mob");
+        blockBreakMobEnabled = mob == null || mob.getBoolean("enabled", true);
+        blockBreakMobChance = mob != null ? mob.getDouble("chance", 0.05) : 0.05;
+        blockBreakMobExcludeBosses = mob != null && mob.getBoolean("exclude-bosses", false); // allow bosses by default
+        ConfigurationSection nw = section(troll, "nether-water");
+        netherWater = nw == null || nw.getBoolean("enabled", true);
+    }
+
+    boolean isWorldEnabled(String worldName) {
+        return allWorlds || enabledWorldNames.contains(worldName);
+    }
+
+    // -------------------- Reload diffing --------------------
+    // What a reload must redo is decided by comparing the old and new snapshot; anything
+    // not covered here is simply read from the new snapshot the next time it is needed.
+
+    // Same palette inputs: the current epoch can be kept as it is
+    boolean samePalette(Settings o) {
+        return deterministicPalette == o.deterministicPalette && paletteSeed == o.paletteSeed
+                && replacementList.equals(o.replacementList) && dropList.equals(o.dropList)
+                && replacementWeights.equals(o.replacementWeights);
+    }
+
+    boolean sameRotationTimer(Settings o) {
+        return paletteEnabled == o.paletteEnabled && rotationSeconds == o.rotationSeconds && clockEpochs == o.clockEpochs;
+    }
+
+    boolean sameSoundsTimer(Settings o) {
+        return soundsEnabled == o.soundsEnabled && soundCheckPeriodTicks == o.soundCheckPeriodTicks
+                && prankSounds.isEmpty() == o.prankSounds.isEmpty();
+    }
+
+    boolean sameFakeMessageTimer(Settings o) {
+        return fakeMessagesEnabled == o.fakeMessagesEnabled && fakeMsgMinMinutes == o.fakeMsgMinMinutes && fakeMsgMaxMinutes == o.fakeMsgMaxMinutes;
+    }
+
+    boolean sameTeleportTimer(Settings o) {
+        return teleportEnabled == o.teleportEnabled && tpMinMinutes == o.tpMinMinutes && tpMaxMinutes == o.tpMaxMinutes;
+    }
+
+    boolean sameHandSwapTimer(Settings o) {
+        return handSwapEnabled == o.handSwapEnabled && handSwapMinMinutes == o.handSwapMinMinutes && handSwapMaxMinutes == o.handSwapMaxMinutes;
+    }
+
+    boolean sameGhostItemTimer(Settings o) {
+        return ghostItemsEnabled == o.ghostItemsEnabled && ghostMinMinutes == o.ghostMinMinutes && ghostMaxMinutes == o.ghostMaxMinutes;
+    }
+
+    boolean sameHungerTimer(Settings o) {
+        return hungerEnabled == o.hungerEnabled && hungerMinMinutes == o.hungerMinMinutes && hungerMaxMinutes == o.hungerMaxMinutes;
+    }
+
+    // One entry of the "worlds" section; null fields inherit the global value
+    static final class WorldOverride {
+        final Boolean enabled;
+        final Integer rotationSeconds;
+        final Double budgetShare;
+        final Boolean drops;
+        final Boolean mobs;
+        final Boolean potions;
+        final Boolean pranks;
+        final Boolean netherWater;
+
+        WorldOverride(ConfigurationSection sec) {
+            enabled = sec.contains("enabled") ? sec.getBoolean("enabled") : null;
+            rotationSeconds = sec.contains("rotation-seconds") ? sec.getInt("rotation-seconds") : null;
+            budgetShare = sec.contains("budget-share") ? Math.max(0.0, Math.min(1.0, sec.getDouble("budget-share"))) : null;
+            drops = sec.contains("drops") ? sec.getBoolean("drops") : null;
+            mobs = sec.contains("block-break-mob") ? sec.getBoolean("block-break-mob") : null;
+            potions = sec.contains("potion-randomize") ? sec.getBoolean("potion-randomize") : null;
+            pranks = sec.contains("pranks") ? sec.getBoolean("pranks") : null;
+            netherWater = sec.contains("nether-water") ? sec.getBoolean("nether-water") : null;
+        }
+    }
+
+    // -------------------- Builders --------------------
+
+    private static ConfigurationSection section(ConfigurationSection parent, String name) {
+        return parent != null ? parent.getConfigurationSection(name) : null;
+    }
+
+    private static boolean preserveNatural(ConfigurationSection cfg, String key) {
+        ConfigurationSection sec = cfg.getConfigurationSection("preserve-natural");
+        return sec == null || sec.getBoolean(key, true);
+    }
+
+    private static List<Sound> readSounds(ConfigurationSection s) {
+        List<Sound> sounds = new ArrayList<>();
+        List<String> names = s != null ? s.getStringList("list") : Collections.emptyList();
+        if (names != null) {
+            for (String n : names) {
+                try {
+                    sounds.add(Sound.valueOf(n));
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+        }
+        if (sounds.isEmpty()) {
+            // Fallback curated defaults; filter for existence by catching above
+            String[] defaults = new String[]{
+                    "ENTITY_CREEPER_PRIMED",
+                    "ENTITY_GHAST_SCREAM",
+                    "ENTITY_GHAST_WARN",
+                    "ENTITY_ENDERMAN_SCREAM",
+                    "ENTITY_ENDERMAN_STARE",
+                    "ENTITY_PHANTOM_AMBIENT",
+                    "BLOCK_PORTAL_TRAVEL",
+                    "ENTITY_GENERIC_EXPLODE",
+                    "ENTITY_TNT_PRIMED"
+            };
+            for (String n : defaults) {
+                try { sounds.add(Sound.valueOf(n)); } catch (IllegalArgumentException ignored) {}
+            }
+        }
+        return sounds;
+    }
+
+    private static Map<Material, Double> readWeights(ConfigurationSection cfg, Logger log) {
+        Map<Material, Double> weights = new EnumMap<>(Material.class);
+        ConfigurationSection sec = cfg.getConfigurationSection("weights");
+        if (sec == null) return weights;
+        for (String key : sec.getKeys(false)) {
+            Material m = safeMaterial(key);
+            if (m == null) {
+                log.warning("BRR: unknown material in weights: " + key);
+                continue;
+            }
+            weights.put(m, sec.getDouble(key, 1.0));
+        }
+        return weights;
+    }
+
+    private static Set<Material> buildProtectedSourceBlocks(MaterialCapabilities caps) {
+        Set<Material> set = EnumSet.noneOf(Material.class);
+        // Containers and block entities to never modify
+        // Chests
+        addIfPresent(set, "CHEST");
+        addIfPresent(set, "TRAPPED_CHEST");
+        addIfPresent(set, "ENDER_CHEST");
+        addIfPresent(set, "BARREL");
+        // Furnaces
+        addIfPresent(set, "FURNACE");
+        addIfPresent(set, "BLAST_FURNACE");
+        addIfPresent(set, "SMOKER");
+        // Hopper/dispensers/droppers
+        addIfPresent(set, "HOPPER");
+        addIfPresent(set, "DROPPER");
+        addIfPresent(set, "DISPENSER");
+        // Shulker boxes and heads/skulls
+        for (Material m : Material.values()) {
+            if (caps.has(m, MaterialCapabilities.SHULKER_BOX | MaterialCapabilities.HEAD)) {
+                set.add(m);
+            }
+        }
+        // Misc block entities and interactables
+        addIfPresent(set, "JUKEBOX");
+        addIfPresent(set, "NOTE_BLOCK");
+        addIfPresent(set, "BEACON");
+        addIfPresent(set, "CONDUIT");
+        addIfPresent(set, "ENCHANTING_TABLE");
+        addIfPresent(set, "BREWING_STAND");
+        addIfPresent(set, "GRINDSTONE");
+        addIfPresent(set, "STONECUTTER");
+        addIfPresent(set, "LOOM");
+        addIfPresent(set, "CARTOGRAPHY_TABLE");
+        addIfPresent(set, "SMITHING_TABLE");
+        addIfPresent(set, "COMPOSTER");
+        addIfPresent(set, "LECTERN");
+        addIfPresent(set, "CRAFTING_TABLE");
+        addIfPresent(set, "FLETCHING_TABLE");
+        addIfPresent(set, "BEE_NEST");
+        addIfPresent(set, "BEEHIVE");
+        // Spawner
+        addIfPresent(set, "SPAWNER");
+        return set;
+    }
+
+    private static Set<Material> buildWhitelist(ConfigurationSection cfg, MaterialCapabilities caps, Set<Material> protectedSources) {
+        Set<String> excludedCategories = new HashSet<>(cfg.getStringList("exclusions.categories"));
+        Set<String> excludedMaterials = new HashSet<>(cfg.getStringList("exclusions.materials"));
+        Set<String> whitelistOverrides = new HashSet<>(cfg.getStringList("whitelist-overrides"));
+        Set<Material> whitelist = EnumSet.noneOf(Material.class);
+
+        // Base rules: solid, non-gravity, non-waterloggable full blocks that do not update or grow
+        int require = MaterialCapabilities.BLOCK | MaterialCapabilities.SOLID;
+        int reject = MaterialCapabilities.AIR | MaterialCapabilities.LIQUID | MaterialCapabilities.GRAVITY
+                | MaterialCapabilities.WATERLOGGABLE | MaterialCapabilities.NON_FULL | MaterialCapabilities.PLANT
+                | MaterialCapabilities.REDSTONE | MaterialCapabilities.PORTAL | MaterialCapabilities.BLACKLISTED;
+        // Category switches (NON_FULL_BLOCKS is already covered by requiring SOLID)
+        if (excludedCategories.contains("LIQUIDS")) reject |= MaterialCapabilities.LIQUID_NAME;
+        if (excludedCategories.contains("CONTAINERS")) reject |= MaterialCapabilities.CONTAINER;
+        if (excludedCategories.contains("SCULK_SENSORS")) reject |= MaterialCapabilities.SCULK_SENSOR;
+        if (excludedCategories.contains("SCULK_SHRIEKER")) reject |= MaterialCapabilities.SCULK_SHRIEKER;
+
+        for (Material m : Material.values()) {
+            if (!caps.matches(m, require, reject)) continue;
+            if (protectedSources.contains(m)) continue; // never place containers/entities
+            if (excludedMaterials.contains(m.name())) continue;
+            whitelist.add(m);
+        }
+
+        // Explicit whitelist overrides; never liquids, melting ice or waterloggables
+        for (String s : whitelistOverrides) {
+            Material m = safeMaterial(s);
+            if (m == null) continue;
+            if (!caps.matches(m, MaterialCapabilities.BLOCK,
+                    MaterialCapabilities.LIQUID | MaterialCapabilities.MELTS | MaterialCapabilities.WATERLOGGABLE)) continue;
+            whitelist.add(m);
+        }
+        return whitelist;
+    }
+
+    private static List<Material> buildDropList(MaterialCapabilities caps) {
+        List<Material> list = new ArrayList<>();
+        for (Material m : Material.values()) {
+            // Always allow blocks; curated non-block items come from the item pools.
+            // Must be representable as an inventory item and not an ephemeral technical block.
+            if (caps.matches(m, MaterialCapabilities.BLOCK | MaterialCapabilities.ITEM,
+                    MaterialCapabilities.AIR | MaterialCapabilities.LIQUID | MaterialCapabilities.NO_DROP)) {
+                list.add(m);
+            }
+        }
+        if (list.isEmpty()) {
+            list.add(Material.STONE);
+        }
+        return list;
+    }
+
+    private void buildItemPools(MaterialCapabilities caps, List<Material> valuables, List<Material> regular) {
+        if (dropAllowNonBlockItems && dropIncludeValuables) {
+            for (Material it : IMPORTANT_DROP_ITEMS) {
+                if (it == null || it.isAir() || it == Material.WATER || it == Material.LAVA) continue;
+                if (caps.has(it, MaterialCapabilities.ITEM)) valuables.add(it);
+            }
+        }
+        if (dropAllowNonBlockItems) {
+            for (Material it : REGULAR_ITEM_ITEMS) {
+                if (it == null || it.isAir() || it == Material.WATER || it == Material.LAVA) continue;
+                if (caps.has(it, MaterialCapabilities.ITEM)) regular.add(it);
+            }
+            for (Material it : FOOD_ITEMS) {
+                if (it == null || it.isAir()) continue;
+                if (caps.has(it, MaterialCapabilities.ITEM)) regular.add(it);
+            }
+        }
+        // Fallback guards
+        if (valuables.isEmpty() && dropIncludeValuables) {
+            valuables.add(Material.ENCHANTED_BOOK);
+        }
+        if (regular.isEmpty()) {
+            regular.add(Material.POTION);
+        }
+    }
+
+    private static void addIfPresent(Set<Material> set, String name) {
+        Material m = safeMaterial(name);
+        if (m != null) set.add(m);
+    }
+
+    static Material safeMaterial(String name) {
+        try {
+            return Material.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Curated important non-block items (valuables, very rare)
+    private static final Material[] IMPORTANT_DROP_ITEMS = new Material[] {
+            // Rares / progression
+            Material.ELYTRA, Material.TOTEM_OF_UNDYING, Material.NETHER_STAR,
+            Material.NETHERITE_INGOT, Material.ANCIENT_DEBRIS,
+            Material.ENCHANTED_GOLDEN_APPLE,
+            Material.HEART_OF_THE_SEA, Material.BEACON, Material.SHULKER_BOX,
+            Material.DRAGON_HEAD, Material.DRAGON_EGG,
+            // High-tier gear
+            Material.TRIDENT,
+            Material.DIAMOND_SWORD, Material.DIAMOND_PICKAXE, Material.DIAMOND_AXE, Material.DIAMOND_SHOVEL,
+            Material.DIAMOND_HELMET, Material.DIAMOND_CHESTPLATE, Material.DIAMOND_LEGGINGS, Material.DIAMOND_BOOTS,
+            Material.NETHERITE_SWORD, Material.NETHERITE_PICKAXE, Material.NETHERITE_AXE, Material.NETHERITE_SHOVEL,
+            Material.NETHERITE_HELMET, Material.NETHERITE_CHESTPLATE, Material.NETHERITE_LEGGINGS, Material.NETHERITE_BOOTS,
+            // Rare utility
+            Material.ENCHANTED_BOOK
+    };
+    // Regular non-block items (tools/armor/potions/utility) at 5%
+    private static final Material[] REGULAR_ITEM_ITEMS = new Material[] {
+            // Mid-tier gear
+            Material.IRON_SWORD, Material.IRON_PICKAXE, Material.IRON_AXE, Material.IRON_SHOVEL,
+            Material.IRON_HELMET, Material.IRON_CHESTPLATE, Material.IRON_LEGGINGS, Material.IRON_BOOTS,
+            Material.GOLDEN_SWORD, Material.GOLDEN_PICKAXE, Material.GOLDEN_AXE, Material.GOLDEN_SHOVEL,
+            Material.GOLDEN_HELMET, Material.GOLDEN_CHESTPLATE, Material.GOLDEN_LEGGINGS, Material.GOLDEN_BOOTS,
+            Material.SHIELD, Material.BOW, Material.CROSSBOW,
+            // Utility
+            Material.ENDER_PEARL, Material.ENDER_EYE, Material.EXPERIENCE_BOTTLE,
+            // Potions (all kinds handled via meta)
+            Material.POTION, Material.SPLASH_POTION, Material.LINGERING_POTION
+    };
+    // Food items
+    private static final Material[] FOOD_ITEMS = new Material[] {
+            Material.BREAD, Material.COOKED_BEEF, Material.COOKED_PORKCHOP, Material.COOKED_CHICKEN,
+            Material.COOKED_MUTTON, Material.COOKED_RABBIT, Material.COOKED_COD, Material.COOKED_SALMON,
+            Material.GOLDEN_CARROT, Material.CARROT, Material.POTATO, Material.BAKED_POTATO,
+            Material.BEETROOT, Material.BEETROOT_SOUP, Material.MUSHROOM_STEW, Material.RABBIT_STEW,
+            Material.PUMPKIN_PIE, Material.COOKIE, Material.MELON_SLICE, Material.SWEET_BERRIES,
+            Material.GLOW_BERRIES, Material.HONEY_BOTTLE, Material.CHORUS_FRUIT
+    };
+}
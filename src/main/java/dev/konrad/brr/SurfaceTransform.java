@@ -0,0 +1,56 @@
+package dev.konrad.brr;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+
+// The palette stage: exposed surface blocks (and the under-depth below them) to the
+// current epoch's picks. Runs when the chunk was queued for randomization; its entries
+// follow palette rotations (ChunkPlan.retarget) and go into the chunk's change log.
+final class SurfaceTransform implements ChunkTransform {
+    static final int STAGE = 0; // registered first, see ChunkPipeline
+
+    private final BlockRandomizerReloaded plugin;
+
+    SurfaceTransform(BlockRandomizerReloaded plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public int ledgerBit() {
+        return 0;
+    }
+
+    @Override
+    public Pass prepare(Chunk chunk, long key, Request request) {
+        if (!request.randomize) return null;
+        World world = chunk.getWorld();
+        if (!plugin.profile(world).enabled) return null;
+        Settings s = plugin.settings();
+
+        int worldMin = world.getMinHeight();
+        int worldMax = world.getMaxHeight() - 1;
+        int yFrom;
+        World.Environment env = world.getEnvironment();
+        if (env == World.Environment.NETHER || env == World.Environment.THE_END) {
+            yFrom = Math.max(0, worldMin);
+        } else {
+            yFrom = Math.max(s.minY, worldMin);
+        }
+        int yTo = Math.min(s.maxY, worldMax);
+        if (yFrom > yTo) return null;
+
+        ChunkPlanner planner = new ChunkPlanner(request.palette, s.materialFlags, worldMin, world.getMaxHeight(),
+                yFrom, yTo, s.underDepth, s.underMinY).onlyColumns(request.columns);
+        // A whole-chunk pass plans without neighbors: the few edge columns the chunk cannot
+        // decide alone are deferred, and their follow-up snapshots only the sides they border
+        long[] c = request.columns;
+        if (c == null) return planner;
+        int cx = chunk.getX();
+        int cz = chunk.getZ();
+        return planner.neighbors(
+                ChunkPlan.hasColumnAtZ(c, 0) ? plugin.neighborSnapshot(world, cx, cz - 1) : null,
+                ChunkPlan.hasColumnAtZ(c, 15) ? plugin.neighborSnapshot(world, cx, cz + 1) : null,
+                ChunkPlan.hasColumnAtX(c, 15) ? plugin.neighborSnapshot(world, cx + 1, cz) : null,
+                ChunkPlan.hasColumnAtX(c, 0) ? plugin.neighborSnapshot(world, cx - 1, cz) : null);
+    }
+}
@@ -0,0 +1,86 @@
+package dev.konrad.brr;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.Arrays;
+
+// Per-tick time budget shared by every randomizer task (chunk writes, requeues, nether
+// conversion). With adaptive mode on it follows Paper's tick timing: a share of the
+// idle time left at the end of the previous tick, scaled down as average MSPT climbs
+// towards 50 ms, never below minMs. All consumers in one tick share a single deadline.
+final class TickBudget implements Listener {
+    private static final double TICK_MS = 50.0;
+
+    private boolean adaptive;
+    private double baseMs = 2.0;   // tick-budget-ms: the fixed budget, and the reference for scale()
+    private double minMs = 0.5;
+    private double maxMs = 25.0;
+    private double idleShare = 0.5;
+    private double pressureFromMs = 35.0; // average MSPT where backing off starts
+
+    private double currentMs = 2.0;
+    private int windowTick = Integer.MIN_VALUE;
+    private long windowStart;
+    private long windowDeadline;
+    private long[] spent = new long[4]; // nanos used per world index in the current window
+
+    void configure(double baseMs, boolean adaptive, double minMs, double maxMs, double idleShare, double pressureFromMs) {
+        this.baseMs = Math.max(0.1, baseMs);
+        this.adaptive = adaptive;
+        this.minMs = Math.max(0.05, Math.min(minMs, this.baseMs));
+        this.maxMs = Math.max(this.minMs, Math.min(maxMs, TICK_MS));
+        this.idleShare = Math.max(0.0, Math.min(1.0, idleShare));
+        this.pressureFromMs = Math.max(0.0, Math.min(pressureFromMs, TICK_MS - 1.0));
+        this.currentMs = this.baseMs;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTickEnd(ServerTickEndEvent e) {
+        if (!adaptive) return;
+        double remainingMs = e.getTimeRemaining() / 1_000_000.0; // negative when the tick overran
+        double mspt = Bukkit.getAverageTickTime();
+        double pressure = (mspt - pressureFromMs) / (TICK_MS - pressureFromMs);
+        pressure = Math.max(0.0, Math.min(1.0, pressure));
+        double target = Math.max(0.0, remainingMs) * idleShare * (1.0 - pressure);
+        currentMs = Math.max(minMs, Math.min(maxMs, target));
+    }
+
+    double currentMs() {
+        return adaptive ? currentMs : baseMs;
+    }
+
+    // Budget relative to the configured tick-budget-ms; used to stretch count-based knobs
+    double scale() {
+        return currentMs() / baseMs;
+    }
+
+    // Deadline for this tick's randomizer work; the first caller in a tick opens the window
+    long deadline() {
+        int tick = Bukkit.getCurrentTick();
+        if (tick != windowTick) {
+            windowTick = tick;
+            windowStart = System.nanoTime();
+            windowDeadline = windowStart + (long) (currentMs() * 1_000_000.0);
+            Arrays.fill(spent, 0L);
+        }
+        return windowDeadline;
+    }
+
+    // Deadline for one world's work: the tick's deadline, or earlier once that world has
+    // used up its share of this tick's budget (see charge)
+    long deadline(int world, double share) {
+        long all = deadline();
+        if (share >= 1.0) return all;
+        long used = world < spent.length ? spent[world] : 0L;
+        return Math.min(all, System.nanoTime() + (long) ((all - windowStart) * share) - used);
+    }
+
+    void charge(int world, long nanos) {
+        if (world >= spent.length) spent = Arrays.copyOf(spent, Math.max(world + 1, spent.length * 2));
+        spent[world] += nanos;
+    }
+}
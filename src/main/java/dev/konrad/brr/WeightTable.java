@@ -0,0 +1,77 @@
+package dev.konrad.brr;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Weighted material choice over a cumulative-weight table: a pick is one binary search,
+// with no allocation. Compiled at reload from a candidate list and per-material weights
+// (default 1.0; weights <= 0 drop the material). Immutable once built, so it is safe to
+// share. "Anything but the source" picks cut the source's span out of the prefix sums,
+// which is exact and loop-free; they only run when palettes are built.
+final class WeightTable {
+    private final Material[] items;
+    private final double[] weight;
+    private final double[] cumulative; // cumulative[i] = weight[0] + ... + weight[i]
+    private final int[] slotOf; // ordinal -> column in items, or -1
+
+    private WeightTable(Material[] items, double[] weight) {
+        this.items = items;
+        this.weight = weight;
+        this.cumulative = new double[items.length];
+        double sum = 0.0;
+        for (int i = 0; i < items.length; i++) {
+            sum += weight[i];
+            cumulative[i] = sum;
+        }
+        this.slotOf = new int[Material.values().length];
+        Arrays.fill(slotOf, -1);
+        for (int i = 0; i < items.length; i++) slotOf[items[i].ordinal()] = i;
+    }
+
+    static WeightTable compile(List<Material> candidates, Map<Material, Double> weights) {
+        int n = 0;
+        Material[] items = new Material[candidates.size()];
+        double[] w = new double[candidates.size()];
+        for (Material m : candidates) {
+            // never hand out liquids, whatever the candidate list says
+            if (m == Material.WATER || m == Material.LAVA) continue;
+            double weight = weights.getOrDefault(m, 1.0);
+            if (!(weight > 0.0)) continue;
+            items[n] = m;
+            w[n++] = weight;
+        }
+        return new WeightTable(Arrays.copyOf(items, n), Arrays.copyOf(w, n));
+    }
+
+    boolean isEmpty() {
+        return items.length == 0;
+    }
+
+    // A weighted pick other than source, u uniform in [0, 1); null when nothing else is left
+    Material pickNot(Material source, double u) {
+        int n = items.length;
+        int slot = slotOf[source.ordinal()];
+        double excluded = slot >= 0 ? weight[slot] : 0.0;
+        double total = n > 0 ? cumulative[n - 1] : 0.0;
+        if (total - excluded <= 0.0) return null;
+        double x = u * (total - excluded);
+        if (slot >= 0 && x >= cumulative[slot] - excluded) x += excluded;
+        // first column whose cumulative weight exceeds x
+        int lo = 0, hi = n - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] > x) hi = mid;
+            else lo = mid + 1;
+        }
+        if (lo == slot) lo = slot == n - 1 ? slot - 1 : slot + 1; // rounding at the edge of the cut
+        return items[lo];
+    }
+
+    Material pickNot(Material source, Random r) {
+        return pickNot(source, r.nextDouble());
+    }
+}
@@ -0,0 +1,74 @@
+package dev.konrad.brr;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+// Small, stable per-world indexes plus the packed long keys built on them.
+// A chunk key is worldIndex (16 bits) | chunkX (24 bits) | chunkZ (24 bits); chunk
+// coordinates stay within 24 bits for any world inside the vanilla border.
+final class WorldIndex {
+    private World[] worlds = new World[4];
+    private UUID[] uids = new UUID[4];
+    private int count = 0;
+
+    // Main thread only
+    int indexOf(World w) {
+        for (int i = 0; i < count; i++) {
+            if (worlds[i] == w) return i;
+        }
+        UUID uid = w.getUID();
+        for (int i = 0; i < count; i++) {
+            if (uids[i].equals(uid)) {
+                worlds[i] = w; // world was reloaded; keep its index
+                return i;
+            }
+        }
+        if (count == worlds.length) {
+            worlds = Arrays.copyOf(worlds, count * 2);
+            uids = Arrays.copyOf(uids, count * 2);
+        }
+        worlds[count] = w;
+        uids[count] = uid;
+        return count++;
+    }
+
+    // The loaded world for an index, or null if it has been unloaded
+    World world(int index) {
+        if (index < 0 || index >= count) return null;
+        World w = worlds[index];
+        if (w != null && Bukkit.getWorld(uids[index]) == w) return w;
+        w = Bukkit.getWorld(uids[index]);
+        worlds[index] = w;
+        return w;
+    }
+
+    long chunkKey(World w, int chunkX, int chunkZ) {
+        return chunkKey(indexOf(w), chunkX, chunkZ);
+    }
+
+    static long chunkKey(int worldIndex, int chunkX, int chunkZ) {
+        return ((long) worldIndex << 48) | ((chunkX & 0xFFFFFFL) << 24) | (chunkZ & 0xFFFFFFL);
+    }
+
+    static int worldOf(long chunkKey) {
+        return (int) (chunkKey >>> 48);
+    }
+
+    static int chunkX(long chunkKey) {
+        return ((int) (chunkKey >> 24)) << 8 >> 8;
+    }
+
+    static int chunkZ(long chunkKey) {
+        return ((int) chunkKey) << 8 >> 8;
+    }
+
+    // Per-player key for cooldown maps: the UUID folded to 64 bits
+    static long playerKey(Player p) {
+        UUID id = p.getUniqueId();
+        return id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+    }
+}
@@ -0,0 +1,54 @@
+package dev.konrad.brr;
+
+// What the plugin does in one world: the global settings with that world's entry of the
+// "worlds" section applied, plus the world's own palette epoch and rotation schedule.
+// Kept in an array by WorldIndex, so hot paths resolve it with one lookup. Main thread only,
+// except palette, which planners read from worker threads.
+final class WorldProfile {
+    final int index;
+    final String name;
+    final long seed; // the world's seed, for deterministic palettes without palette.seed
+
+    boolean enabled;
+    boolean drops;
+    boolean mobs;
+    boolean potions;
+    boolean pranks;
+    boolean netherWater;
+    double budgetShare = 1.0; // share of each tick's budget this world's chunk work may use
+    int rotationSeconds;      // 0 = this world does not rotate
+
+    // Current palette epoch of this world; replaced wholesale, never edited in place
+    volatile PaletteTable palette = PaletteTable.empty(0);
+    long phaseSeconds;                        // stagger offset within the rotation period
+    long nextRotationTick = Long.MAX_VALUE;   // counter epochs only
+
+    WorldProfile(int index, String name, long seed) {
+        this.index = index;
+        this.name = name;
+        this.seed = seed;
+    }
+
+    // Resolves the toggles against a new snapshot; true if the rotation period changed
+    boolean configure(Settings s) {
+        Settings.WorldOverride o = s.worldOverrides.get(name);
+        enabled = o != null && o.enabled != null ? o.enabled : s.isWorldEnabled(name);
+        budgetShare = o != null && o.budgetShare != null ? o.budgetShare : 1.0;
+        drops = enabled && (o == null || o.drops == null || o.drops);
+        mobs = enabled && (o != null && o.mobs != null ? o.mobs : s.blockBreakMobEnabled);
+        potions = enabled && (o != null && o.potions != null ? o.potions : s.potionRandomize);
+        pranks = enabled && (o == null || o.pranks == null || o.pranks);
+        netherWater = enabled && (o != null && o.netherWater != null ? o.netherWater : s.netherWater);
+        int rotation = 0;
+        if (enabled && s.paletteEnabled) {
+            rotation = Math.max(0, o != null && o.rotationSeconds != null ? o.rotationSeconds : s.rotationSeconds);
+        }
+        boolean changed = rotation != rotationSeconds;
+        rotationSeconds = rotation;
+        return changed;
+    }
+
+    boolean rotates() {
+        return rotationSeconds > 0;
+    }
+}